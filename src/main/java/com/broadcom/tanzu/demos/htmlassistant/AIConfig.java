@@ -16,29 +16,67 @@
 
 package com.broadcom.tanzu.demos.htmlassistant;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.mistralai.MistralAiChatModel;
+import org.springframework.ai.mistralai.MistralAiChatOptions;
+import org.springframework.ai.openai.OpenAiChatModel;
 import org.springframework.ai.openai.OpenAiChatOptions;
 import org.springframework.aot.hint.annotation.RegisterReflectionForBinding;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.util.LinkedHashMap;
 
 @Configuration(proxyBeanMethods = false)
-// FIXME workaround for missing metadata in native-image starting with Spring 1.0.0-M6
-@RegisterReflectionForBinding(OpenAiChatOptions.class)
+// Spring AI 1.0.0-M6 ships no binding hints for chat options (spring.ai.*.chat.options):
+// these are required by AOT-processed apps and native images, whichever AI provider is used.
+@RegisterReflectionForBinding({OpenAiChatOptions.class, MistralAiChatOptions.class})
 class AIConfig {
     @Bean
     ChatClient chatClient(ChatClient.Builder chatClientBuilder,
-                          @Value("${app.content.prompt}") String systemPrompt) {
+                          @Value("${app.content.prompt}") String systemPrompt,
+                          MeterRegistry meterRegistry) {
         // Set up a default chat client instance for the app.
         return chatClientBuilder
                 .defaultSystem(systemPrompt)
+                .defaultAdvisors(new ModelMetricsAdvisor(meterRegistry))
                 .build();
     }
 
+    @Bean
+    @Primary
+    @ConditionalOnProperty(name = "app.routing.enabled", havingValue = "true")
+    RoutingChatModel routingChatModel(RoutingConfig config,
+                                      ObjectProvider<OpenAiChatModel> openAiChatModel,
+                                      ObjectProvider<MistralAiChatModel> mistralAiChatModel,
+                                      MeterRegistry meterRegistry) {
+        // Route requests to all configured AI providers, in the preferred order.
+        final var chatModels = new LinkedHashMap<String, ChatModel>();
+        for (final var provider : config.providers()) {
+            final ChatModel chatModel = switch (provider) {
+                case "openai" -> openAiChatModel.getIfAvailable();
+                case "mistral" -> mistralAiChatModel.getIfAvailable();
+                default -> throw new IllegalArgumentException("Unsupported AI provider: " + provider);
+            };
+            if (chatModel != null) {
+                chatModels.put(provider, chatModel);
+            }
+        }
+        if (chatModels.isEmpty()) {
+            throw new IllegalStateException("No AI provider available for routing: " + config.providers());
+        }
+        LoggerFactory.getLogger(AIConfig.class).atInfo().log("Routing requests to AI providers: {}", chatModels.keySet());
+        return new RoutingChatModel(config, chatModels, meterRegistry);
+    }
+
     @Bean
     CommandLineRunner onStart(ChatModel chatModel) {
         return args -> {
@@ -21,7 +21,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 
 @SpringBootApplication
-@EnableConfigurationProperties(ContentConfig.class)
+@EnableConfigurationProperties({ContentConfig.class, RoutingConfig.class, TieringConfig.class, BatchConfig.class, RateLimitConfig.class})
 public class Application {
     public static void main(String[] args) {
         SpringApplication.run(Application.class, args);
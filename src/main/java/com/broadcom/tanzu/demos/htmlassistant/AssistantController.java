@@ -16,9 +16,13 @@
 
 package com.broadcom.tanzu.demos.htmlassistant;
 
+import jakarta.servlet.http.HttpServletRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -28,14 +32,19 @@ import org.springframework.web.bind.annotation.*;
 import java.util.UUID;
 
 @Controller
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 class AssistantController {
     private final Logger logger = LoggerFactory.getLogger(AssistantController.class);
     private final ContentConfig config;
-    private final StringRedisTemplate redis;
+    private final ContentStore store;
+    private final ContentGenerator generator;
+    private final RateLimiter limiter;
 
-    AssistantController(ContentConfig config, StringRedisTemplate redis) {
+    AssistantController(ContentConfig config, ContentStore store, ContentGenerator generator, RateLimiter limiter) {
         this.config = config;
-        this.redis = redis;
+        this.store = store;
+        this.generator = generator;
+        this.limiter = limiter;
     }
 
     @ModelAttribute("model")
@@ -51,7 +60,7 @@ class AssistantController {
     @GetMapping("/assistant/{id}")
     String getPage(Model model, @ModelAttribute AssistantForm form, @PathVariable("id") String contentId) {
         // Load prompt.
-        final var prompt = redis.opsForValue().get("content::" + contentId + "::prompt");
+        final var prompt = store.getPrompt(contentId);
         if (!StringUtils.hasText(prompt)) {
             throw new IllegalArgumentException("Content not found");
         }
@@ -71,19 +80,41 @@ class AssistantController {
         return ResponseEntity.notFound().build();
     }
 
+    @ExceptionHandler(RateLimitedException.class)
+    ResponseEntity<?> handleRateLimitedException(RateLimitedException e) {
+        logger.atInfo().log("Rendering 429 page: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .cacheControl(CacheControl.noStore())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(RateLimiter.toSeconds(e.getRetryAfter())))
+                .body("Too many prompts submitted: please try again later.");
+    }
+
     @PostMapping("/assistant")
-    String submitPrompt(@ModelAttribute AssistantForm form) {
+    String submitPrompt(@ModelAttribute AssistantForm form, HttpServletRequest req) {
         logger.atDebug().log("Received assistant form: {}", form);
+        // Each prompt is going to be sent to the AI model: the client quota is checked first.
+        final var client = limiter.getClient(req);
+        limiter.acquire(RateLimiter.Quota.PROMPTS, client);
 
         final var previousContentId = form.getPreviousContentId();
         final var newContentId = UUID.randomUUID().toString();
         final var prompt = form.getPrompt();
         logger.atInfo().log("Submitting prompt for content {}: {}", newContentId, prompt);
 
-        redis.opsForValue().set("content::" + newContentId + "::prompt", prompt);
         if (StringUtils.hasText(previousContentId)) {
             logger.atInfo().log("Linking new content {} to previous content {}", newContentId, previousContentId);
-            redis.opsForValue().set("content::" + newContentId + "::previous", previousContentId);
+        }
+        store.createContent(newContentId, prompt, previousContentId, client);
+        if (StringUtils.hasText(previousContentId) && !config.reuseContent()) {
+            // The previous content may still be generated: it's now superseded by this new content,
+            // which doesn't use it (otherwise the new generation waits for the previous content).
+            generator.cancel(previousContentId);
+        }
+
+        if (config.generateOnSubmit()) {
+            // Generation starts right now, while the browser is being redirected:
+            // the content request will then attach to this generation.
+            generator.prefetch(newContentId);
         }
 
         // Let's redirect the user to a brand new page to avoid "Refresh" issues with POST requests.
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+import java.util.List;
+
+@Controller
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+class BatchController {
+    private final Logger logger = LoggerFactory.getLogger(BatchController.class);
+    private final BatchGenerator generator;
+    private final RateLimiter limiter;
+
+    record BatchRequest(List<BatchGenerator.BatchItem> items) {
+    }
+
+    BatchController(BatchGenerator generator, RateLimiter limiter) {
+        this.generator = generator;
+        this.limiter = limiter;
+    }
+
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<BatchGenerator.BatchStatus> submitBatch(@RequestBody BatchRequest request, HttpServletRequest req) {
+        // Contents are generated in the background: the job status tells which contents are ready.
+        final var jobId = generator.submit(request.items(), limiter.getClient(req));
+        return ResponseEntity.accepted()
+                .location(URI.create("/batch/" + jobId))
+                .body(generator.getStatus(jobId));
+    }
+
+    @GetMapping(value = "/batch/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<BatchGenerator.BatchStatus> getBatch(@PathVariable("id") String jobId) {
+        final var status = generator.getStatus(jobId);
+        return status != null ? ResponseEntity.ok(status) : ResponseEntity.notFound().build();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    ResponseEntity<?> handleIllegalArgumentException(IllegalArgumentException e) {
+        logger.atWarn().log("Rejecting batch: {}", e.getMessage());
+        return ResponseEntity.badRequest().build();
+    }
+
+    @ExceptionHandler(RateLimitedException.class)
+    ResponseEntity<?> handleRateLimitedException(RateLimitedException e) {
+        logger.atInfo().log("Rejecting batch: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .cacheControl(CacheControl.noStore())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(RateLimiter.toSeconds(e.getRetryAfter())))
+                .build();
+    }
+}
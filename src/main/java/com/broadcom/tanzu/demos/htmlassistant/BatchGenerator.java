@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+@Component
+class BatchGenerator {
+    // Each batch job is stored as a single hash, with the content id and the status of each item:
+    // any instance can then report the progress of a job.
+    private static final String TOTAL = "total";
+    private static final String GENERATED = "generated";
+    private static final String FAILED = "failed";
+    private static final String PENDING = "pending";
+
+    record BatchItem(String prompt, String previousContentId, Integer previousItem) {
+    }
+
+    record ItemStatus(String contentId, String status) {
+    }
+
+    record BatchStatus(String jobId, int total, int generated, int failed, boolean done, List<ItemStatus> items) {
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(BatchGenerator.class);
+    private final BatchConfig config;
+    private final ContentConfig contentConfig;
+    private final StringRedisTemplate redis;
+    private final ContentStore store;
+    private final ContentGenerator generator;
+    private final RateLimiter limiter;
+    private final int concurrency;
+    private final Counter generatedItems;
+    private final Counter failedItems;
+
+    BatchGenerator(BatchConfig config, ContentConfig contentConfig, StringRedisTemplate redis,
+                   ContentStore store, ContentGenerator generator, RateLimiter limiter, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.contentConfig = contentConfig;
+        this.redis = redis;
+        this.store = store;
+        this.generator = generator;
+        this.limiter = limiter;
+        // Batch items must leave room for interactive generations, which would otherwise be queued behind these.
+        this.concurrency = Math.min(config.concurrency(), Math.max(1, contentConfig.maxConcurrentGenerations() - 1));
+        if (concurrency < config.concurrency()) {
+            logger.atWarn().log("Batch concurrency capped to {}, below the maximum number of concurrent generations",
+                    concurrency);
+        }
+        this.generatedItems = Counter.builder("content.batch.items").tag("result", GENERATED)
+                .description("Batch items generated").register(meterRegistry);
+        this.failedItems = Counter.builder("content.batch.items").tag("result", FAILED)
+                .description("Batch items which failed to generate").register(meterRegistry);
+    }
+
+    String submit(List<BatchItem> items, String client) {
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("No items to generate");
+        }
+        if (items.size() > config.maxItems()) {
+            throw new IllegalArgumentException("Too many items to generate: " + items.size());
+        }
+
+        // An item may refine a previous item of the same batch, or an existing content.
+        final var contents = new ArrayList<ContentStore.NewContent>(items.size());
+        for (var i = 0; i < items.size(); i++) {
+            final var item = items.get(i);
+            if (!StringUtils.hasText(item.prompt())) {
+                throw new IllegalArgumentException("No prompt found for item " + i);
+            }
+            var previousId = item.previousContentId();
+            if (item.previousItem() != null) {
+                if (item.previousItem() < 0 || item.previousItem() >= i) {
+                    throw new IllegalArgumentException("Item " + i + " must refer to a previous item");
+                }
+                previousId = contents.get(item.previousItem()).contentId();
+            }
+            contents.add(new ContentStore.NewContent(UUID.randomUUID().toString(), item.prompt(), previousId));
+        }
+        // Submitting a batch counts as a prompt: its items are charged as these are generated.
+        limiter.acquire(RateLimiter.Quota.PROMPTS, client);
+        store.createContents(contents);
+
+        final var jobId = UUID.randomUUID().toString();
+        final var fields = new LinkedHashMap<byte[], byte[]>();
+        fields.put(toBytes(TOTAL), toBytes(String.valueOf(items.size())));
+        fields.put(toBytes(GENERATED), toBytes("0"));
+        fields.put(toBytes(FAILED), toBytes("0"));
+        for (var i = 0; i < contents.size(); i++) {
+            fields.put(toBytes("content::" + i), toBytes(contents.get(i).contentId()));
+        }
+        final var key = toBytes("batch::" + jobId);
+        redis.executePipelined((RedisCallback<Object>) connection -> {
+            connection.hashCommands().hMSet(key, fields);
+            connection.keyCommands().pExpire(key, config.expiration().toMillis());
+            return null;
+        });
+        logger.atInfo().log("Submitted batch {} with {} items", jobId, items.size());
+
+        run(jobId, items, contents, client);
+        return jobId;
+    }
+
+    BatchStatus getStatus(String jobId) {
+        final var fields = redis.<String, String>opsForHash().entries("batch::" + jobId);
+        if (fields.isEmpty()) {
+            return null;
+        }
+        final var total = Integer.parseInt(fields.get(TOTAL));
+        final var generated = Integer.parseInt(fields.get(GENERATED));
+        final var failed = Integer.parseInt(fields.get(FAILED));
+        final var items = new ArrayList<ItemStatus>(total);
+        for (var i = 0; i < total; i++) {
+            items.add(new ItemStatus(fields.get("content::" + i), fields.getOrDefault("status::" + i, PENDING)));
+        }
+        return new BatchStatus(jobId, total, generated, failed, generated + failed == total, items);
+    }
+
+    private void run(String jobId, List<BatchItem> items, List<ContentStore.NewContent> contents, String client) {
+        // Items are generated with a bounded concurrency, leaving room for interactive generations.
+        // An item refining a previous item of this batch is generated once the previous item is done:
+        // previous items are always started first.
+        final var done = new ArrayList<Mono<Void>>(items.size());
+        for (var i = 0; i < items.size(); i++) {
+            final var previousItem = items.get(i).previousItem();
+            final var previous = previousItem != null ? done.get(previousItem) : Mono.<Void>empty();
+            done.add(previous.then(generate(jobId, i, contents.get(i).contentId(), client)).cache());
+        }
+        Flux.fromIterable(done)
+                .flatMap(Function.identity(), concurrency)
+                .subscribe(null,
+                        e -> logger.atWarn().log("Failed to run batch {}", jobId, e),
+                        () -> logger.atInfo().log("Batch {} completed", jobId));
+    }
+
+    private Mono<Void> generate(String jobId, int item, String contentId, String client) {
+        // Items are generated as the batch quota of the client submitting this batch allows.
+        return Mono.fromRunnable(() -> limiter.acquire(RateLimiter.Quota.BATCH, client))
+                .subscribeOn(Schedulers.boundedElastic())
+                .retryWhen(Retry.from(failures -> failures.concatMap(failure ->
+                        failure.failure() instanceof RateLimitedException e
+                                ? Mono.delay(e.getRetryAfter()) : Mono.<Long>error(failure.failure()))))
+                .thenMany(Flux.defer(() -> generator.generate(contentId))
+                        // Interactive generations come first: let's try again later when the scheduler is full.
+                        .retryWhen(Retry.fixedDelay(Long.MAX_VALUE, contentConfig.generationRetryAfter())
+                                .filter(GenerationRejectedException.class::isInstance)))
+                .then(Mono.fromRunnable(() -> complete(jobId, item, GENERATED)))
+                .onErrorResume(e -> {
+                    logger.atWarn().log("Failed to generate item {} of batch {}: {}", item, jobId, contentId, e);
+                    return Mono.fromRunnable(() -> complete(jobId, item, FAILED));
+                })
+                .then();
+    }
+
+    private void complete(String jobId, int item, String status) {
+        final var key = toBytes("batch::" + jobId);
+        redis.executePipelined((RedisCallback<Object>) connection -> {
+            connection.hashCommands().hSet(key, toBytes("status::" + item), toBytes(status));
+            connection.hashCommands().hIncrBy(key, toBytes(status), 1);
+            return null;
+        });
+        (GENERATED.equals(status) ? generatedItems : failedItems).increment();
+    }
+
+    private static byte[] toBytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -22,66 +22,50 @@ import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
 import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
 import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisor;
 import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
-import org.springframework.data.redis.core.StringRedisTemplate;
-import org.springframework.util.StringUtils;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import reactor.core.publisher.Flux;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
 
-class ContentAdvisor implements CallAroundAdvisor {
+class ContentAdvisor implements CallAroundAdvisor, StreamAroundAdvisor {
     private final Logger logger = LoggerFactory.getLogger(ContentAdvisor.class);
     private final String contentId;
-    private final ContentConfig config;
-    private final StringRedisTemplate redis;
+    private final ContentStore.ContentHistory history;
+    private final boolean editContent;
 
-    ContentAdvisor(String contentId, ContentConfig config, StringRedisTemplate redis) {
+    ContentAdvisor(String contentId, ContentStore.ContentHistory history, boolean editContent) {
         this.contentId = contentId;
-        this.config = config;
-        this.redis = redis;
+        this.history = history;
+        this.editContent = editContent;
     }
 
     @Override
     public AdvisedResponse aroundCall(AdvisedRequest advisedRequest, CallAroundAdvisorChain chain) {
-        final var currentPrompt = redis.opsForValue().get("content::" + contentId + "::prompt");
-        if (!StringUtils.hasText(currentPrompt)) {
-            throw new IllegalStateException("No prompt found");
-        }
-
-        final var previousPrompts = new ArrayList<String>(4);
-        String lastContent = null;
-        // Collect previous prompts.
-        var i = contentId;
-        do {
-            // Let's see if there's an older content linked to this one.
-            final var previousId = redis.opsForValue().get("content::" + i + "::previous");
-            if (!StringUtils.hasText(previousId)) {
-                // Found no content.
-                break;
-            }
-
-            // Get previous prompt.
-            final var previousPrompt = redis.opsForValue().get("content::" + previousId + "::prompt");
-            if (previousPrompt == null) {
-                continue;
-            }
-
-            // Get last generated content, if any.
-            if (lastContent == null && config.reuseContent()) {
-                logger.atDebug().log("Reusing previous content for {}", contentId);
-                lastContent = redis.opsForValue().get("content::" + previousId + "::source");
-            }
+        return chain.nextAroundCall(augmentRequest(advisedRequest));
+    }
 
-            previousPrompts.add(previousPrompt);
+    @Override
+    public Flux<AdvisedResponse> aroundStream(AdvisedRequest advisedRequest, StreamAroundAdvisorChain chain) {
+        return Flux.defer(() -> chain.nextAroundStream(augmentRequest(advisedRequest)));
+    }
 
-            // Prepare for next round.
-            i = previousId;
-        } while (true);
+    private AdvisedRequest augmentRequest(AdvisedRequest advisedRequest) {
+        final var currentPrompt = history.prompt();
+        final var previousPrompts = history.unsummarizedPrompts();
+        final var lastContent = history.previousSource();
+        if (lastContent != null) {
+            logger.atDebug().log("Reusing previous content for {}", contentId);
+        }
 
         final var newPrompt = new StringBuilder(4096);
-        if (!previousPrompts.isEmpty()) {
+        if (history.summary() != null || !previousPrompts.isEmpty()) {
             newPrompt.append("The user previously generated a website using instructions.\n")
                     .append("Please consider these instructions when processing the new website:\n");
-            for (final String p : previousPrompts.reversed()) {
+            if (history.summary() != null) {
+                newPrompt.append("summary of the first instructions: ").append(history.summary()).append("\n");
+            }
+            for (final String p : previousPrompts) {
                 newPrompt.append("instruction: ").append(p).append("\n");
             }
             newPrompt.append("\n");
@@ -92,7 +76,30 @@ class ContentAdvisor implements CallAroundAdvisor {
                 .append(currentPrompt).append("\n")
                 .append("\nPlease note that the current year is ").append(LocalDate.now().getYear()).append(" in case you need to generate copyright statements.\n");
 
-        if (lastContent != null) {
+        final var editLastContent = editContent && lastContent != null;
+        if (editLastContent) {
+            // Only ask for the changes to apply to the previous content, which saves
+            // a lot of output tokens (and time) compared to a whole new content.
+            newPrompt.append("""
+
+                            Do not return the whole HTML page: only return the changes to apply to the current HTML page \
+                            as search/replace blocks, using this format:
+
+                            <<<<<<< SEARCH
+                            (lines to find in the current HTML page)
+                            =======
+                            (lines to replace them with)
+                            >>>>>>> REPLACE
+
+                            The SEARCH lines must exactly match the current HTML page, including whitespaces and comments, \
+                            with enough lines to uniquely identify where the changes are applied. \
+                            Prefer several small blocks over a large one. Do not include anything else in your answer.
+
+                            This is the current HTML page:
+
+                            """)
+                    .append(lastContent).append("\n");
+        } else if (lastContent != null) {
             newPrompt.append("\nUse the following HTML page as a starting point to generate the new website:\n\n")
                     .append(lastContent).append("\n");
         }
@@ -100,8 +107,13 @@ class ContentAdvisor implements CallAroundAdvisor {
         final var newPromptStr = newPrompt.toString();
         logger.atDebug().log("New augmented prompt for content {}:\n{}", contentId, newPromptStr);
 
-        return chain.nextAroundCall(AdvisedRequest.from(advisedRequest)
-                .userText(newPromptStr).build());
+        final var newRequest = AdvisedRequest.from(advisedRequest).userText(newPromptStr);
+        if (editLastContent) {
+            // The system prompt asks for a whole HTML page, which is not what we want here.
+            newRequest.systemText(advisedRequest.systemText()
+                    + "\n\nWhen asked to edit an existing HTML page, only return search/replace blocks as instructed.");
+        }
+        return newRequest.build();
     }
 
     @Override
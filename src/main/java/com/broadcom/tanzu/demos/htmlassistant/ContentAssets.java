@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+class ContentAssets {
+    // The AI model generates self-contained pages: most of the time, style sheets and scripts
+    // don't change from a page to the next one. These are extracted as assets named after their content,
+    // which are stored once and cached by browsers, while pages only reference them.
+    // Only plain inline blocks are extracted, so that the self-contained page can be rebuilt as it was.
+    private static final Pattern INLINE_BLOCK = Pattern.compile("<(style|script)>(.*?)</\\1>", Pattern.DOTALL);
+    private static final Pattern REFERENCE = Pattern.compile(
+            "<link rel=\"stylesheet\" href=\"asset-([0-9a-f]{32}\\.css)\">|<script src=\"asset-([0-9a-f]{32}\\.js)\"></script>");
+    private static final Pattern ASSET_ID = Pattern.compile("[0-9a-f]{32}\\.(css|js)");
+    // Smaller blocks would cost more as an additional request than they save.
+    private static final int MIN_ASSET_LENGTH = 512;
+
+    record Extraction(String page, Map<String, String> assets) {
+    }
+
+    private ContentAssets() {
+    }
+
+    static Extraction extract(String source) {
+        final var assets = new LinkedHashMap<String, String>();
+        final var page = INLINE_BLOCK.matcher(source).replaceAll(m -> {
+            final var body = m.group(2);
+            if (body.length() < MIN_ASSET_LENGTH) {
+                return Matcher.quoteReplacement(m.group());
+            }
+            final var style = m.group(1).equals("style");
+            final var assetId = ContentStore.computeETag(body) + (style ? ".css" : ".js");
+            assets.put(assetId, body);
+            return Matcher.quoteReplacement(style
+                    ? "<link rel=\"stylesheet\" href=\"asset-" + assetId + "\">"
+                    : "<script src=\"asset-" + assetId + "\"></script>");
+        });
+        return new Extraction(page, assets);
+    }
+
+    static Set<String> references(String page) {
+        final var assetIds = new LinkedHashMap<String, Boolean>();
+        final var matcher = REFERENCE.matcher(page);
+        while (matcher.find()) {
+            assetIds.put(matcher.group(1) != null ? matcher.group(1) : matcher.group(2), Boolean.TRUE);
+        }
+        return assetIds.keySet();
+    }
+
+    static String inline(String page, Map<String, String> assets) {
+        // Rebuild the self-contained page, which is what the AI model is expected to work with.
+        // References to unknown assets are left as they are.
+        return REFERENCE.matcher(page).replaceAll(m -> {
+            final var assetId = m.group(1) != null ? m.group(1) : m.group(2);
+            final var body = assets.get(assetId);
+            if (body == null) {
+                return Matcher.quoteReplacement(m.group());
+            }
+            return Matcher.quoteReplacement(m.group(1) != null
+                    ? "<style>" + body + "</style>"
+                    : "<script>" + body + "</script>");
+        });
+    }
+
+    static boolean isAssetId(String assetId) {
+        return ASSET_ID.matcher(assetId).matches();
+    }
+
+    static String contentType(String assetId) {
+        return assetId.endsWith(".css") ? "text/css;charset=UTF-8" : "text/javascript;charset=UTF-8";
+    }
+}
@@ -17,11 +17,31 @@
 package com.broadcom.tanzu.demos.htmlassistant;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
 
 @ConfigurationProperties(prefix = "app.content")
 record ContentConfig(
         String model,
+        String prompt,
         boolean reuseContent,
-        boolean sanitizeContent
+        boolean editContent,
+        int promptTokenBudget,
+        boolean sanitizeContent,
+        boolean minifyContent,
+        boolean extractAssets,
+        boolean streamContent,
+        boolean generateOnSubmit,
+        Duration generationLease,
+        Duration generationCancelDelay,
+        int maxConcurrentGenerations,
+        int maxPendingGenerations,
+        Duration generationRetryAfter,
+        Duration expiration,
+        boolean slidingExpiration,
+        boolean cacheGenerations,
+        int cacheVariants,
+        DataSize nearCacheSize
 ) {
 }
@@ -16,118 +16,197 @@
 
 package com.broadcom.tanzu.demos.htmlassistant;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
-import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.context.request.WebRequest;
+import reactor.core.publisher.Flux;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
 
 @Controller
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 class ContentController {
+    private static final Duration KEEP_ALIVE_INTERVAL = Duration.ofSeconds(5);
     private final Logger logger = LoggerFactory.getLogger(ContentController.class);
-    private final ContentConfig config;
-    private final StringRedisTemplate redis;
-    private final ChatClient chatClient;
-
-    ContentController(ContentConfig config,
-                      ChatClient chatClient, StringRedisTemplate redis) {
-        this.config = config;
-        this.chatClient = chatClient;
-        this.redis = redis;
+    private final ContentStore store;
+    private final ContentGenerator generator;
+    private final Counter storedContents;
+    private final Counter notModifiedContents;
+    private final Counter generatedContents;
+
+    ContentController(ContentStore store, ContentGenerator generator, MeterRegistry meterRegistry) {
+        this.store = store;
+        this.generator = generator;
+        this.storedContents = Counter.builder("content.requests").tag("result", "hit")
+                .description("Content requests served from the store").register(meterRegistry);
+        this.notModifiedContents = Counter.builder("content.requests").tag("result", "not-modified")
+                .description("Content requests served from the client cache").register(meterRegistry);
+        this.generatedContents = Counter.builder("content.requests").tag("result", "generated")
+                .description("Content requests served while generating the content").register(meterRegistry);
     }
 
-    @GetMapping("/content/site-{id}")
-    @ResponseBody
-    String generateContent(@PathVariable("id") String contentId,
-                           WebRequest req, HttpServletResponse resp) {
+    @GetMapping(value = "/content/site-{id}", produces = "text/html;charset=UTF-8")
+    ResponseEntity<Flux<String>> generateContent(@PathVariable("id") String contentId,
+                                                 WebRequest req, HttpServletResponse resp) throws IOException {
         // Enable HTTP cache on client side.
         resp.setHeader(HttpHeaders.CACHE_CONTROL,
                 CacheControl.maxAge(Duration.ofDays(7)).cachePublic().immutable().getHeaderValue());
 
-        final var timestampStr = redis.opsForValue().get("content::" + contentId + "::timestamp");
-        long timestamp = 0;
-        if (timestampStr != null) {
-            try {
-                timestamp = ZonedDateTime.parse(timestampStr).toInstant().toEpochMilli();
-            } catch (DateTimeParseException e) {
-                logger.atWarn().log("Failed to parse timestamp from content {}: {}", contentId, timestampStr, e);
+        // Responses depend on the encodings supported by the client.
+        resp.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        final var existingContent = store.getContent(contentId);
+        if (existingContent != null) {
+            final var etag = selectETag(existingContent.etag(),
+                    req.getHeader(HttpHeaders.ACCEPT_ENCODING), req.getHeader(HttpHeaders.IF_NONE_MATCH));
+            if (req.checkNotModified(etag, existingContent.timestamp())) {
+                // The client already has a "cached" content (ETag header is set): let Spring MVC returns a 304.
+                logger.atDebug().log("Using cached content: {}", contentId);
+                notModifiedContents.increment();
+                return null;
             }
+            // The client doesn't have this content yet: let's just return the content as it is stored.
+            logger.atDebug().log("Reusing existing content: {}", contentId);
+            storedContents.increment();
+            writeContent(existingContent, "text/html;charset=UTF-8", req, resp);
+            return null;
         }
 
-        if (timestamp != 0 && req.checkNotModified(contentId, timestamp)) {
-            // The client already has a "cached" content (ETag header is set): let Spring MVC returns a 304.
-            logger.atDebug().log("Using cached content: {}", contentId);
-            return null;
+        final var prompt = store.getPrompt(contentId);
+        if (prompt == null) {
+            throw new IllegalArgumentException("Content not found: " + contentId);
         }
-        final var existingContent = redis.opsForValue().get("content::" + contentId + "::source");
-        if (existingContent != null) {
-            // We already have the content but the ETag header is not set: let's just return the content as it is.
-            logger.atDebug().log("Reusing existing content: {}", contentId);
-            return existingContent;
+
+        resp.setHeader(HttpHeaders.LAST_MODIFIED, ZonedDateTime.now().format(DateTimeFormatter.RFC_1123_DATE_TIME));
+        final var content = keepAlive(generator.generate(contentId));
+        generatedContents.increment();
+        return ResponseEntity.ok(content);
+    }
+
+    @GetMapping("/content/asset-{id}")
+    void getAsset(@PathVariable("id") String assetId, WebRequest req, HttpServletResponse resp) throws IOException {
+        final var asset = ContentAssets.isAssetId(assetId) ? store.getAsset(assetId) : null;
+        if (asset == null) {
+            throw new IllegalArgumentException("Asset not found: " + assetId);
         }
+        // Assets are named after their content, so they never change: these can be cached for a long time.
+        resp.setHeader(HttpHeaders.CACHE_CONTROL,
+                CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable().getHeaderValue());
+        resp.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (req.checkNotModified(selectETag(asset.etag(),
+                req.getHeader(HttpHeaders.ACCEPT_ENCODING), req.getHeader(HttpHeaders.IF_NONE_MATCH)))) {
+            return;
+        }
+        writeContent(asset, ContentAssets.contentType(assetId), req, resp);
+    }
 
-        logger.atInfo().log("Generating content with AI: {}", contentId);
-        try {
-            final var prompt = redis.opsForValue().get("content::" + contentId + "::prompt");
-            if (prompt == null) {
-                throw new IllegalArgumentException("Content not found: " + contentId);
-            }
+    private void writeContent(ContentStore.StoredContent content, String contentType,
+                              WebRequest req, HttpServletResponse resp) throws IOException {
+        // Contents are stored compressed: most clients accept this encoding,
+        // so the content can be sent without any processing.
+        final byte[] body;
+        if (acceptsGzip(req.getHeader(HttpHeaders.ACCEPT_ENCODING))) {
+            resp.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            body = content.compressedSource();
+        } else {
+            body = content.source().getBytes(StandardCharsets.UTF_8);
+        }
+        resp.setContentType(contentType);
+        resp.setContentLength(body.length);
+        resp.getOutputStream().write(body);
+    }
+
+    static Flux<String> keepAlive(Flux<String> content) {
+        // A client which went away is only detected when writing to its connection fails:
+        // some whitespace (ignored before the doctype) is sent until the first chunk is generated,
+        // so that the generation can be cancelled while the AI model is still working on it.
+        return content.publish(shared -> Flux.merge(
+                Flux.interval(KEEP_ALIVE_INTERVAL).map(i -> "\n").takeUntilOther(shared.onErrorComplete()),
+                shared));
+    }
 
-            // Call AI model.
-            // Note that we do get the output as a plain String, without using a Java entity
-            // as some AI models fail to render the output as a JSON construct.
-            final var content = sanitizeContent(contentId,
-                    chatClient.prompt()
-                            .user(prompt)
-                            .advisors(new ContentAdvisor(contentId, config, redis))
-                            .call().content()
-            );
-
-            logger.atInfo().log("Content generated with AI: {}", contentId);
-            logger.atTrace().log("About to store content {}:\n{}", contentId, content);
-            redis.opsForValue().set("content::" + contentId + "::source", content);
-
-            final var now = ZonedDateTime.now();
-            redis.opsForValue().set("content::" + contentId + "::timestamp", now.toString());
-            resp.setHeader(HttpHeaders.LAST_MODIFIED, now.format(DateTimeFormatter.RFC_1123_DATE_TIME));
-
-            return content;
-        } catch (Exception e) {
-            throw new ContentGenerationFailedException(contentId, e);
+    static String selectETag(String etag, String acceptEncoding, String ifNoneMatch) {
+        // Strong entity tags must differ from one content coding to another: the compressed representation
+        // gets its own tag. A client (or a cache) which only has the uncompressed representation may still
+        // revalidate it, while clients not accepting gzip never get the tag of the compressed representation.
+        if (!acceptsGzip(acceptEncoding)) {
+            return etag;
         }
+        final var gzipETag = etag + "-gzip";
+        if (ifNoneMatch != null && !ifNoneMatch.contains('"' + gzipETag + '"') && ifNoneMatch.contains('"' + etag + '"')) {
+            return etag;
+        }
+        return gzipETag;
     }
 
-    private String sanitizeContent(String contentId, String content) {
-        if (content == null) {
-            throw new IllegalArgumentException("No content generated: " + contentId);
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
         }
-        if (!config.sanitizeContent()) {
-            logger.atDebug().log("Skip content sanitization: {}", contentId);
-            return content;
+        for (final var encoding : acceptEncoding.split(",")) {
+            final var parts = encoding.split(";");
+            final var name = parts[0].strip();
+            if (name.equalsIgnoreCase("gzip") || name.equals("*")) {
+                // Make sure this encoding is not explicitly refused ("gzip;q=0").
+                return parts.length < 2 || !parts[1].strip().matches("q=0(\\.0*)?");
+            }
         }
-        // Some AI models (such as DeepSeek) don't fully comply with the "output" instructions
-        // (such as "just return plain HTML content"): in this case we have to manually clean up
-        // the output.
-        final var newContent = content.replaceAll("[\\s\\S]*?</think>", "")
-                .replaceAll("^```html", "")
-                .replaceAll("```$", "")
-                .trim();
-        logger.atDebug().log("New content {} after sanitization:\n{}", contentId, newContent);
-        return newContent;
+        return false;
+    }
+
+    @ExceptionHandler(GenerationRejectedException.class)
+    ResponseEntity<?> handleGenerationRejectedException(GenerationRejectedException e, HttpServletResponse resp) {
+        abortIfCommitted(e, resp);
+        logger.atWarn().log("Rendering 503 page: {}", e.getMessage());
+        // Make sure this response is not cached, as the client is expected to retry later.
+        resp.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfter().toSeconds()))
+                .build();
+    }
+
+    @ExceptionHandler(GenerationCancelledException.class)
+    ResponseEntity<?> handleGenerationCancelledException(GenerationCancelledException e, HttpServletResponse resp) {
+        // A superseded content is not expected to be read anymore.
+        abortIfCommitted(e, resp);
+        logger.atDebug().log("Rendering 204 page: {}", e.getMessage());
+        resp.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+        return ResponseEntity.noContent().build();
+    }
+
+    private static void abortIfCommitted(RuntimeException e, HttpServletResponse resp) {
+        // Part of the content was already sent: the response must not end as if it were complete,
+        // since it would then be cached. The error is left to the server, which closes the connection.
+        if (resp.isCommitted()) {
+            throw e;
+        }
+    }
+
+    @ExceptionHandler(RateLimitedException.class)
+    ResponseEntity<?> handleRateLimitedException(RateLimitedException e, HttpServletResponse resp) {
+        // The generation may be rejected once it gets a slot, after some whitespace was sent.
+        abortIfCommitted(e, resp);
+        logger.atInfo().log("Rendering 429 page: {}", e.getMessage());
+        resp.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(RateLimiter.toSeconds(e.getRetryAfter())))
+                .build();
     }
 
     @ExceptionHandler(IllegalArgumentException.class)
@@ -0,0 +1,415 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+@Component
+class ContentGenerator {
+    private static final Duration LEASE_POLL_INTERVAL = Duration.ofMillis(500);
+    private static final RedisScript<Long> RENEW_LEASE_SCRIPT = RedisScript.of("""
+            if redis.call('get', KEYS[1]) == ARGV[1] then
+                return redis.call('pexpire', KEYS[1], ARGV[2])
+            end
+            return 0
+            """, Long.class);
+    private static final RedisScript<Long> RELEASE_LEASE_SCRIPT = RedisScript.of("""
+            if redis.call('get', KEYS[1]) == ARGV[1] then
+                return redis.call('del', KEYS[1])
+            end
+            return 0
+            """, Long.class);
+
+    private record Generation(Flux<String> content, Sinks.Empty<Void> cancellation) {
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(ContentGenerator.class);
+    private final ConcurrentMap<String, Generation> generations = new ConcurrentHashMap<>();
+    private final ContentConfig config;
+    private final StringRedisTemplate redis;
+    private final ContentStore store;
+    private final ChatClient chatClient;
+    private final GenerationScheduler scheduler;
+    private final GenerationCache cache;
+    private final PromptCompactor compactor;
+    private final RateLimiter limiter;
+    private final Timer sanitizerTimer;
+    private final Timer minifierTimer;
+    private final DistributionSummary minifierSavings;
+    private final Counter abandonedGenerations;
+    private final Counter supersededGenerations;
+
+    ContentGenerator(ContentConfig config, ChatClient chatClient, StringRedisTemplate redis,
+                     ContentStore store, GenerationScheduler scheduler, GenerationCache cache,
+                     PromptCompactor compactor, RateLimiter limiter, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.chatClient = chatClient;
+        this.redis = redis;
+        this.store = store;
+        this.scheduler = scheduler;
+        this.cache = cache;
+        this.compactor = compactor;
+        this.limiter = limiter;
+        this.sanitizerTimer = Timer.builder("content.sanitizer")
+                .description("Time spent sanitizing generated contents").register(meterRegistry);
+        this.minifierTimer = Timer.builder("content.minifier")
+                .description("Time spent minifying generated contents").register(meterRegistry);
+        this.minifierSavings = DistributionSummary.builder("content.minifier.savings")
+                .description("Characters removed from generated contents when minifying").baseUnit("characters")
+                .register(meterRegistry);
+        this.abandonedGenerations = Counter.builder("content.generation.cancellations").tag("reason", "abandoned")
+                .description("Generations cancelled as no client was reading these").register(meterRegistry);
+        this.supersededGenerations = Counter.builder("content.generation.cancellations").tag("reason", "superseded")
+                .description("Generations cancelled as a new prompt refining these was submitted").register(meterRegistry);
+    }
+
+    Flux<String> generate(String contentId) {
+        // Concurrent requests for the same content share a single generation:
+        // late subscribers get the chunks which were already generated, then the next ones.
+        // New generations are run through the scheduler, which may reject them when overloaded.
+        return generations.computeIfAbsent(contentId, this::newGeneration).content();
+    }
+
+    private Generation newGeneration(String contentId) {
+        scheduler.admit(contentId);
+        final var cancellation = Sinks.<Void>empty();
+        // Checking the lease (and waiting for it) doesn't need a generation slot:
+        // a slot is taken only when this instance gets to call the AI model.
+        final var content = awaitPrevious(contentId)
+                .thenMany(generateOrAwait(contentId))
+                .subscribeOn(Schedulers.boundedElastic())
+                .takeUntilOther(cancellation.asMono())
+                .onErrorMap(e -> !(e instanceof ContentGenerationFailedException || e instanceof GenerationCancelledException
+                                || e instanceof GenerationRejectedException || e instanceof RateLimitedException),
+                        e -> new ContentGenerationFailedException(contentId, e))
+                .doFinally(signal -> generations.remove(contentId));
+        if (config.generationCancelDelay().isZero()) {
+            return new Generation(content.cache(), cancellation);
+        }
+        // Once every client went away (and none came back for a while), the generation is cancelled:
+        // this subscription to the AI model is disposed, and the partial content is not stored.
+        return new Generation(content
+                .doOnCancel(() -> {
+                    abandonedGenerations.increment();
+                    logger.atInfo().log("Cancelled content generation with no client left: {}", contentId);
+                })
+                .replay()
+                .refCount(1, config.generationCancelDelay()), cancellation);
+    }
+
+    void cancel(String contentId) {
+        // A new prompt refining this content was submitted while this content was being generated:
+        // the user is unlikely to look at it, so let's not wait for the AI model.
+        // Only the generation running on this instance can be cancelled.
+        final var generation = generations.get(contentId);
+        if (generation == null || config.generationCancelDelay().isZero()) {
+            return;
+        }
+        if (generation.cancellation().tryEmitError(new GenerationCancelledException(contentId)).isSuccess()) {
+            supersededGenerations.increment();
+            logger.atInfo().log("Cancelled content generation superseded by a new prompt: {}", contentId);
+        }
+    }
+
+    void prefetch(String contentId) {
+        // Start generating this content in the background: the content will be available
+        // sooner when it's requested, as the generation is shared with the next subscribers.
+        // This subscription only keeps the generation running until the browser is expected
+        // to be reading the content.
+        try {
+            final var content = generate(contentId);
+            final var cancelDelay = config.generationCancelDelay();
+            (cancelDelay.isZero() ? content : content.take(cancelDelay)).subscribe(null, e -> {
+                if (e instanceof GenerationRejectedException) {
+                    logger.atInfo().log("Too many generations in progress, deferring content generation: {}", contentId);
+                } else if (e instanceof RateLimitedException) {
+                    logger.atDebug().log("Rate limit exceeded, skipping background content generation: {}", contentId);
+                } else if (e instanceof GenerationCancelledException) {
+                    logger.atDebug().log("Background content generation cancelled: {}", contentId);
+                } else {
+                    logger.atWarn().log("Failed to generate content in the background: {}", contentId, e);
+                }
+            });
+        } catch (GenerationRejectedException e) {
+            // The content will be generated later, when it's requested.
+            logger.atInfo().log("Too many generations in progress, deferring content generation: {}", contentId);
+        }
+    }
+
+    private Mono<Void> awaitPrevious(String contentId) {
+        // A new content refining a previous content which is still being generated is built from
+        // the previous content: let's wait until the previous content is stored.
+        if (!config.reuseContent()) {
+            return Mono.empty();
+        }
+        return Mono.fromCallable(() -> store.getPreviousId(contentId))
+                .flatMap(this::awaitContent);
+    }
+
+    private Mono<Void> awaitContent(String contentId) {
+        final var generation = generations.get(contentId);
+        if (generation != null) {
+            // Subscribing to this generation also keeps it running.
+            logger.atDebug().log("Waiting for previous content being generated: {}", contentId);
+            return generation.content().then().onErrorComplete();
+        }
+        // This content may be generated by another instance.
+        if (!Boolean.TRUE.equals(redis.hasKey("content::" + contentId + "::lease"))) {
+            return Mono.empty();
+        }
+        return Mono.delay(LEASE_POLL_INTERVAL)
+                .publishOn(Schedulers.boundedElastic())
+                .then(Mono.defer(() -> awaitContent(contentId)));
+    }
+
+    private Flux<String> generateOrAwait(String contentId) {
+        return Flux.defer(() -> {
+            // A lease is used to make sure a single instance is generating this content.
+            final var leaseToken = UUID.randomUUID().toString();
+            final var leaseAcquired = redis.opsForValue().setIfAbsent(
+                    "content::" + contentId + "::lease", leaseToken, config.generationLease());
+            if (Boolean.TRUE.equals(leaseAcquired)) {
+                // The content may have been generated elsewhere since the lease was last checked.
+                final var existingContent = store.getSource(contentId);
+                if (existingContent != null) {
+                    releaseLease(contentId, leaseToken);
+                    return Flux.just(existingContent);
+                }
+                return generateWithLease(contentId, leaseToken);
+            }
+
+            // Another instance is generating this content: let's wait until it's done.
+            // Should this instance crash, the lease will eventually expire and we'll take over.
+            logger.atDebug().log("Waiting for content being generated elsewhere: {}", contentId);
+            return Mono.delay(LEASE_POLL_INTERVAL)
+                    .publishOn(Schedulers.boundedElastic())
+                    .then(Mono.fromCallable(() -> store.getSource(contentId)))
+                    .flatMapMany(Flux::just)
+                    .switchIfEmpty(generateOrAwait(contentId));
+        });
+    }
+
+    private Flux<String> generateWithLease(String contentId, String leaseToken) {
+        final var leaseKey = List.of("content::" + contentId + "::lease");
+        final var leaseMillis = String.valueOf(config.generationLease().toMillis());
+        return Flux.defer(() -> {
+            // Keep the lease alive as long as the content is being generated (or waiting for a slot):
+            // the lease is released as well should the scheduler reject this generation.
+            // Redis commands are blocking: these are not sent from the shared timer threads.
+            final var leaseRenewal = Flux.interval(config.generationLease().dividedBy(3), Schedulers.boundedElastic())
+                    .subscribe(i -> redis.execute(RENEW_LEASE_SCRIPT, leaseKey, leaseToken, leaseMillis),
+                            e -> logger.atWarn().log("Failed to renew lease for content {}", contentId, e));
+            return scheduler.schedule(contentId, Flux.defer(() -> generateContent(contentId)))
+                    .doFinally(signal -> {
+                        leaseRenewal.dispose();
+                        // This signal may come from the thread reading the AI model response.
+                        Schedulers.boundedElastic().schedule(() -> releaseLease(contentId, leaseToken));
+                    });
+        });
+    }
+
+    private Flux<String> generateContent(String contentId) {
+        var history = store.getHistory(contentId, config.reuseContent());
+        if (history == null || !StringUtils.hasText(history.prompt())) {
+            throw new IllegalStateException("No prompt found");
+        }
+        if (config.minifyContent() && history.previousSource() != null) {
+            // The previous content may have been stored before minification was enabled:
+            // the AI model (and the patches it returns) must see the same content anyway.
+            history = new ContentStore.ContentHistory(history.prompt(), history.previousId(), history.previousPrompts(),
+                    ContentMinifier.minify(history.previousSource()), history.summary(), history.summarizedPrompts());
+        }
+
+        // Reuse a content generated with the same prompts, if any.
+        final var cacheKey = config.cacheGenerations() ? cache.getKey(history) : null;
+        if (cacheKey != null) {
+            final var cachedContent = cache.lookup(cacheKey);
+            if (cachedContent != null) {
+                logger.atInfo().log("Reusing cached content: {}", contentId);
+                store.storeSource(contentId, cachedContent);
+                return Flux.just(cachedContent);
+            }
+        }
+
+        // Only calls to the AI model count against the quota of the client which submitted this content,
+        // whichever request (or instance) runs this generation.
+        if (limiter.isEnabled()) {
+            limiter.acquire(RateLimiter.Quota.GENERATIONS, store.getClient(contentId));
+        }
+
+        // Make sure the prompt stays within the token budget.
+        final var promptHistory = compactor.compact(contentId, history);
+        final var content = config.editContent() && promptHistory.previousSource() != null
+                ? editContent(contentId, promptHistory, history.previousSource()) : generateWithAI(contentId, promptHistory);
+        final var page = new StringBuilder(16384);
+        // Chunks are emitted by the thread reading the AI model response (an event loop when streaming):
+        // the content is stored from another thread, before the generation completes.
+        return content
+                .doOnNext(page::append)
+                .concatWith(Mono.<String>fromRunnable(() -> {
+                    storeContent(contentId, minifyContent(contentId, page.toString()));
+                    if (cacheKey != null && !page.isEmpty()) {
+                        cache.add(cacheKey, contentId);
+                    }
+                }).subscribeOn(Schedulers.boundedElastic()));
+    }
+
+    private void releaseLease(String contentId, String leaseToken) {
+        // Only release the lease if it's still ours.
+        redis.execute(RELEASE_LEASE_SCRIPT, List.of("content::" + contentId + "::lease"), leaseToken);
+    }
+
+    private Flux<String> generateWithAI(String contentId, ContentStore.ContentHistory history) {
+        logger.atInfo().log("Generating content with AI: {}", contentId);
+        return config.streamContent() ? streamContent(contentId, history) : callContent(contentId, history);
+    }
+
+    private Flux<String> editContent(String contentId, ContentStore.ContentHistory history, String previousSource) {
+        // Ask the AI model for the changes to apply to the previous content:
+        // should these changes fail to apply, a whole new content is generated instead.
+        logger.atInfo().log("Editing previous content with AI: {}", contentId);
+        return callModel(() -> chatClient.prompt()
+                        .user(history.prompt())
+                        .advisors(new ContentAdvisor(contentId, history, true))
+                        .call().content())
+                .mapNotNull(patch -> patchContent(contentId, previousSource, patch))
+                .flux()
+                .switchIfEmpty(Flux.defer(() -> generateWithAI(contentId, history)));
+    }
+
+    private String patchContent(String contentId, String content, String patch) {
+        logger.atDebug().log("Received patch for content {}:\n{}", contentId, patch);
+        final var newContent = ContentPatcher.apply(content, patch);
+        if (newContent == null) {
+            logger.atWarn().log("Failed to apply patch, falling back to a full generation: {}", contentId);
+            return null;
+        }
+        logger.atInfo().log("Patch applied to previous content: {}", contentId);
+        return newContent;
+    }
+
+    private Flux<String> callContent(String contentId, ContentStore.ContentHistory history) {
+        // Call AI model.
+        // Note that we do get the output as a plain String, without using a Java entity
+        // as some AI models fail to render the output as a JSON construct.
+        return callModel(() -> sanitizeContent(contentId,
+                        chatClient.prompt()
+                                .user(history.prompt())
+                                .advisors(new ContentAdvisor(contentId, history, false))
+                                .call().content()))
+                .flux();
+    }
+
+    private static Mono<String> callModel(Supplier<String> call) {
+        // Cancelling the generation interrupts the thread waiting for the AI model, which then fails:
+        // this failure is expected, and there is nobody left to report it to.
+        final var cancelled = new AtomicBoolean();
+        return Mono.fromCallable(() -> {
+            try {
+                return call.get();
+            } catch (RuntimeException e) {
+                if (cancelled.get()) {
+                    return null;
+                }
+                throw e;
+            }
+        }).doOnCancel(() -> cancelled.set(true));
+    }
+
+    private Flux<String> streamContent(String contentId, ContentStore.ContentHistory history) {
+        // Stream the AI model output: chunks are sent to the client as soon as they are generated.
+        final var chunks = chatClient.prompt()
+                .user(history.prompt())
+                .advisors(new ContentAdvisor(contentId, history, false))
+                .stream().content();
+        if (!config.sanitizeContent()) {
+            logger.atDebug().log("Skip content sanitization: {}", contentId);
+            return chunks;
+        }
+        final var sanitizer = new ContentSanitizer();
+        final var sanitizerNanos = new long[1];
+        return chunks.map(chunk -> {
+                    final var start = System.nanoTime();
+                    final var sanitizedChunk = sanitizer.push(chunk);
+                    sanitizerNanos[0] += System.nanoTime() - start;
+                    return sanitizedChunk;
+                })
+                .concatWith(Mono.fromSupplier(() -> {
+                    final var start = System.nanoTime();
+                    final var lastChunk = sanitizer.finish();
+                    sanitizerTimer.record(sanitizerNanos[0] + System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    return lastChunk;
+                }))
+                .filter(StringUtils::hasLength);
+    }
+
+    private void storeContent(String contentId, String content) {
+        if (content.isEmpty()) {
+            logger.atWarn().log("No content generated: {}", contentId);
+            return;
+        }
+        logger.atInfo().log("Content generated with AI: {}", contentId);
+        logger.atTrace().log("About to store content {}:\n{}", contentId, content);
+        store.storeSource(contentId, content);
+    }
+
+    private String minifyContent(String contentId, String content) {
+        if (!config.minifyContent() || content.isEmpty()) {
+            return content;
+        }
+        final var newContent = minifierTimer.record(() -> ContentMinifier.minify(content));
+        minifierSavings.record(content.length() - newContent.length());
+        logger.atDebug().log("Minified content {}: {} characters removed", contentId, content.length() - newContent.length());
+        return newContent;
+    }
+
+    private String sanitizeContent(String contentId, String content) {
+        if (content == null) {
+            throw new IllegalArgumentException("No content generated: " + contentId);
+        }
+        if (!config.sanitizeContent()) {
+            logger.atDebug().log("Skip content sanitization: {}", contentId);
+            return content;
+        }
+        final var newContent = sanitizerTimer.record(() -> ContentSanitizer.sanitize(content));
+        logger.atDebug().log("New content {} after sanitization:\n{}", contentId, newContent);
+        return newContent;
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import java.util.ArrayDeque;
+import java.util.Locale;
+
+class ContentMinifier {
+    // Generated contents are full of indentation, comments and blank lines: these contents are
+    // stored, sent to clients and used as the previous content in the next prompts.
+    // Only what doesn't change the page is removed, in a single pass over the content.
+    // Line breaks are kept, as the AI model relies on lines to edit the previous content
+    // (and line breaks may be significant in scripts).
+    private static final String[] REGEX_KEYWORDS = {
+            "return", "typeof", "case", "do", "else", "in", "of", "new", "delete", "void", "throw",
+            "instanceof", "yield", "await"
+    };
+
+    private static final String REGEX_FLAGS = "dgimsuvy";
+
+    private ContentMinifier() {
+    }
+
+    static String minify(String content) {
+        final var out = new StringBuilder(content.length());
+        final var len = content.length();
+        var i = 0;
+        while (i < len) {
+            final var c = content.charAt(i);
+            if (c == '<' && content.startsWith("<!--", i)) {
+                final var end = content.indexOf("-->", i + 4);
+                if (end == -1 || content.startsWith("[if", i + 4)) {
+                    // Keep conditional comments, and truncated contents as they are.
+                    final var next = end == -1 ? len : end + 3;
+                    out.append(content, i, next);
+                    i = next;
+                } else {
+                    i = end + 3;
+                }
+            } else if (c == '<' && i + 1 < len && isTagStart(content.charAt(i + 1))) {
+                final var tagStart = out.length();
+                i = copyTag(content, i, out);
+                i = copyElementBody(content, i, out, out.substring(tagStart));
+            } else if (Character.isWhitespace(c)) {
+                var newLine = false;
+                while (i < len && Character.isWhitespace(content.charAt(i))) {
+                    newLine |= content.charAt(i) == '\n';
+                    i++;
+                }
+                appendWhitespace(out, newLine);
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        return out.toString().strip();
+    }
+
+    private static boolean isTagStart(char c) {
+        return Character.isLetter(c) || c == '/' || c == '!' || c == '?';
+    }
+
+    private static void appendWhitespace(StringBuilder out, boolean newLine) {
+        // Whitespaces are collapsed, including those left around removed comments.
+        if (out.isEmpty()) {
+            return;
+        }
+        final var last = out.charAt(out.length() - 1);
+        if (last == '\n') {
+            return;
+        }
+        if (last == ' ') {
+            if (newLine) {
+                out.setCharAt(out.length() - 1, '\n');
+            }
+            return;
+        }
+        out.append(newLine ? '\n' : ' ');
+    }
+
+    private static int copyTag(String content, int i, StringBuilder out) {
+        // Whitespaces between attributes are collapsed, while attribute values are kept as they are.
+        final var len = content.length();
+        while (i < len) {
+            final var c = content.charAt(i);
+            if (c == '"' || c == '\'') {
+                final var end = content.indexOf(c, i + 1);
+                final var next = end == -1 ? len : end + 1;
+                out.append(content, i, next);
+                i = next;
+            } else if (Character.isWhitespace(c)) {
+                while (i < len && Character.isWhitespace(content.charAt(i))) {
+                    i++;
+                }
+                out.append(' ');
+            } else {
+                out.append(c);
+                i++;
+                if (c == '>') {
+                    break;
+                }
+            }
+        }
+        return i;
+    }
+
+    private static int copyElementBody(String content, int i, StringBuilder out, String tag) {
+        final var name = tagName(tag);
+        if (!name.equals("script") && !name.equals("style") && !name.equals("pre") && !name.equals("textarea")) {
+            return i;
+        }
+        if (tag.endsWith("/>")) {
+            return i;
+        }
+        // The element body ends with the first closing tag, whatever its content.
+        final var end = indexOfIgnoreCase(content, "</" + name, i);
+        final var body = content.substring(i, end);
+        if (name.equals("script") && isJavaScript(tag)) {
+            out.append(minifyScript(body));
+        } else if (name.equals("style")) {
+            out.append(minifyStyle(body));
+        } else {
+            // Whitespaces are significant in other elements, such as preformatted texts
+            // or scripts used as templates.
+            out.append(body);
+        }
+        return end;
+    }
+
+    private static String tagName(String tag) {
+        var end = 1;
+        while (end < tag.length() && Character.isLetterOrDigit(tag.charAt(end))) {
+            end++;
+        }
+        return tag.substring(1, end).toLowerCase(Locale.ROOT);
+    }
+
+    private static boolean isJavaScript(String tag) {
+        final var lowerTag = tag.toLowerCase(Locale.ROOT);
+        return !lowerTag.contains("type=") || lowerTag.contains("javascript") || lowerTag.contains("module");
+    }
+
+    private static int indexOfIgnoreCase(String content, String str, int from) {
+        for (var i = from; i <= content.length() - str.length(); i++) {
+            if (content.regionMatches(true, i, str, 0, str.length())) {
+                return i;
+            }
+        }
+        return content.length();
+    }
+
+    static String minifyScript(String script) {
+        // Comments and indentation are removed from scripts, without changing anything else:
+        // strings, template literals and regular expressions are copied as they are.
+        // Should this script be unexpectedly formed, it's returned as it is.
+        final var out = new StringBuilder(script.length());
+        // Brace depths of the template literals being processed, when expressions are nested in them.
+        final var templates = new ArrayDeque<Integer>();
+        final var len = script.length();
+        var braces = 0;
+        var pendingSpace = false;
+        var pendingNewLine = false;
+        var i = 0;
+        while (i < len) {
+            final var c = script.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingNewLine |= c == '\n';
+                pendingSpace = true;
+                i++;
+                continue;
+            }
+            if (c == '/' && i + 1 < len && script.charAt(i + 1) == '/') {
+                while (i < len && script.charAt(i) != '\n') {
+                    i++;
+                }
+                continue;
+            }
+            if (c == '/' && i + 1 < len && script.charAt(i + 1) == '*') {
+                final var end = script.indexOf("*/", i + 2);
+                if (end == -1) {
+                    return script;
+                }
+                // A comment spanning several lines is a line break, as far as semicolon insertion is concerned.
+                pendingNewLine |= script.substring(i, end).indexOf('\n') != -1;
+                pendingSpace = true;
+                i = end + 2;
+                continue;
+            }
+
+            final var regex = c == '/' && isRegexAllowed(out);
+            if (pendingSpace && !out.isEmpty()) {
+                out.append(pendingNewLine ? '\n' : ' ');
+            }
+            pendingSpace = false;
+            pendingNewLine = false;
+
+            if (c == '"' || c == '\'') {
+                i = copyString(script, i, out, c);
+            } else if (c == '`' || (c == '}' && !templates.isEmpty() && templates.peek() == braces)) {
+                if (c == '}') {
+                    templates.pop();
+                }
+                i = copyTemplate(script, i, out);
+                if (i > 0 && script.startsWith("${", i - 2)) {
+                    templates.push(braces);
+                }
+            } else if (regex) {
+                i = copyRegex(script, i, out);
+            } else {
+                if (c == '{') {
+                    braces++;
+                } else if (c == '}') {
+                    braces--;
+                }
+                out.append(c);
+                i++;
+            }
+            if (i < 0) {
+                return script;
+            }
+        }
+        if (!templates.isEmpty()) {
+            return script;
+        }
+        if (pendingNewLine && !out.isEmpty()) {
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    private static int copyString(String script, int i, StringBuilder out, char quote) {
+        final var start = i++;
+        while (i < script.length()) {
+            final var c = script.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote) {
+                out.append(script, start, i + 1);
+                return i + 1;
+            } else if (c == '\n') {
+                return -1;
+            } else {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    private static int copyTemplate(String script, int i, StringBuilder out) {
+        // Copy a template literal up to its end, or up to the next embedded expression.
+        final var start = i++;
+        while (i < script.length()) {
+            final var c = script.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == '`') {
+                out.append(script, start, i + 1);
+                return i + 1;
+            } else if (c == '$' && i + 1 < script.length() && script.charAt(i + 1) == '{') {
+                out.append(script, start, i + 2);
+                return i + 2;
+            } else {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    private static int copyRegex(String script, int i, StringBuilder out) {
+        final var start = i++;
+        var inClass = false;
+        while (i < script.length()) {
+            final var c = script.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == '\n') {
+                return -1;
+            } else if (c == '[') {
+                inClass = true;
+                i++;
+            } else if (c == ']') {
+                inClass = false;
+                i++;
+            } else if (c == '/' && !inClass) {
+                // Make sure this was a regular expression: only flags may follow it, before the next token.
+                var next = i + 1;
+                while (next < script.length() && REGEX_FLAGS.indexOf(script.charAt(next)) != -1) {
+                    next++;
+                }
+                if (next < script.length() && (Character.isJavaIdentifierPart(script.charAt(next))
+                        || "\"'`".indexOf(script.charAt(next)) != -1)) {
+                    return -1;
+                }
+                out.append(script, start, next);
+                return next;
+            } else {
+                i++;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isRegexAllowed(StringBuilder out) {
+        // A slash starts a regular expression where an expression is expected, depending on the previous token:
+        // this is a division after a value (an identifier, a number, a closing parenthesis or bracket,
+        // or a postfix increment or decrement).
+        var end = out.length();
+        while (end > 0 && Character.isWhitespace(out.charAt(end - 1))) {
+            end--;
+        }
+        if (end == 0) {
+            return true;
+        }
+        final var last = out.charAt(end - 1);
+        if ((last == '+' || last == '-') && end > 1 && out.charAt(end - 2) == last) {
+            return false;
+        }
+        if ("(,=:[!&|?{};+-*%<>~^".indexOf(last) != -1) {
+            return true;
+        }
+        for (final var keyword : REGEX_KEYWORDS) {
+            final var start = end - keyword.length();
+            if (start >= 0 && out.indexOf(keyword, start) == start
+                    && (start == 0 || !Character.isJavaIdentifierPart(out.charAt(start - 1)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    static String minifyStyle(String style) {
+        // Comments and indentation are removed from style sheets, as well as spaces around
+        // braces, semicolons and commas. Strings are copied as they are.
+        final var out = new StringBuilder(style.length());
+        final var len = style.length();
+        var pendingSpace = false;
+        var pendingNewLine = false;
+        var i = 0;
+        while (i < len) {
+            final var c = style.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingNewLine |= c == '\n';
+                pendingSpace = true;
+                i++;
+                continue;
+            }
+            if (c == '/' && i + 1 < len && style.charAt(i + 1) == '*') {
+                final var end = style.indexOf("*/", i + 2);
+                if (end == -1) {
+                    return style;
+                }
+                pendingSpace = true;
+                i = end + 2;
+                continue;
+            }
+
+            if (pendingSpace && !out.isEmpty()) {
+                if (pendingNewLine) {
+                    out.append('\n');
+                } else if ("{};,".indexOf(c) == -1 && "{};,".indexOf(out.charAt(out.length() - 1)) == -1) {
+                    out.append(' ');
+                }
+            }
+            pendingSpace = false;
+            pendingNewLine = false;
+
+            if (c == '"' || c == '\'') {
+                i = copyString(style, i, out, c);
+                if (i < 0) {
+                    return style;
+                }
+            } else {
+                out.append(c);
+                i++;
+            }
+        }
+        if (pendingNewLine && !out.isEmpty()) {
+            out.append('\n');
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.regex.Pattern;
+
+class ContentPatcher {
+    private static final Pattern SEARCH_MARKER = Pattern.compile("^<{5,9} ?SEARCH\\s*$");
+    private static final Pattern DIVIDER_MARKER = Pattern.compile("^={5,9}\\s*$");
+    private static final Pattern REPLACE_MARKER = Pattern.compile("^>{5,9} ?REPLACE\\s*$");
+
+    // AI models don't always reproduce whitespaces as they were in the original content:
+    // lines are compared as is first, then ignoring trailing and leading whitespaces.
+    private static final List<UnaryOperator<String>> LINE_MATCHERS = List.of(
+            UnaryOperator.identity(), String::stripTrailing, String::strip);
+
+    private record Block(List<String> search, List<String> replace) {
+    }
+
+    private ContentPatcher() {
+    }
+
+    static String apply(String source, String patch) {
+        // Apply search/replace blocks to a content, returning null if a block cannot be applied:
+        // anything outside these blocks (such as reasoning steps or Markdown fences) is ignored.
+        final var blocks = parse(patch);
+        if (blocks == null || blocks.isEmpty()) {
+            return null;
+        }
+        final var lines = new ArrayList<>(Arrays.asList(source.split("\\R", -1)));
+        for (final var block : blocks) {
+            if (block.search().isEmpty()) {
+                return null;
+            }
+            final var index = find(lines, block.search());
+            if (index == -1) {
+                return null;
+            }
+            final var range = lines.subList(index, index + block.search().size());
+            range.clear();
+            range.addAll(block.replace());
+        }
+        return String.join("\n", lines);
+    }
+
+    private static List<Block> parse(String patch) {
+        final var blocks = new ArrayList<Block>(8);
+        List<String> search = null;
+        List<String> replace = null;
+        for (final var line : patch.split("\\R", -1)) {
+            if (search == null) {
+                if (SEARCH_MARKER.matcher(line).matches()) {
+                    search = new ArrayList<>(16);
+                }
+            } else if (replace == null) {
+                if (DIVIDER_MARKER.matcher(line).matches()) {
+                    replace = new ArrayList<>(16);
+                } else {
+                    search.add(line);
+                }
+            } else if (REPLACE_MARKER.matcher(line).matches()) {
+                blocks.add(new Block(search, replace));
+                search = null;
+                replace = null;
+            } else {
+                replace.add(line);
+            }
+        }
+        // An unterminated block means the output was truncated.
+        return search == null ? blocks : null;
+    }
+
+    private static int find(List<String> lines, List<String> search) {
+        // Each block is expected to match a single location: should a block match several locations
+        // (which is common in repetitive HTML), there is no telling which one the AI model meant.
+        for (final var matcher : LINE_MATCHERS) {
+            final var index = find(lines, search, matcher, 0);
+            if (index != -1) {
+                return find(lines, search, matcher, index + 1) == -1 ? index : -1;
+            }
+        }
+        return -1;
+    }
+
+    private static int find(List<String> lines, List<String> search, UnaryOperator<String> matcher, int start) {
+        for (int i = start; i <= lines.size() - search.size(); ++i) {
+            var matched = true;
+            for (int j = 0; j < search.size() && matched; ++j) {
+                matched = matcher.apply(lines.get(i + j)).equals(matcher.apply(search.get(j)));
+            }
+            if (matched) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
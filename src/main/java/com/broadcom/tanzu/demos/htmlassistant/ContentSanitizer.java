@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+class ContentSanitizer {
+    private static final String THINK_START = "<think>";
+    private static final String THINK_END = "</think>";
+    private static final String FENCE_START = "```html";
+    private static final String FENCE_END = "```";
+
+    // Some AI models (such as DeepSeek) don't fully comply with the "output" instructions
+    // (such as "just return plain HTML content"): in this case we have to manually clean up
+    // the output, which is done in a single pass as chunks are received.
+    private enum State {
+        // Skipping whitespaces before the content.
+        LEADING,
+        // Checking if the content starts with a reasoning block.
+        THINK_START,
+        // Checking if the content starts with a Markdown fence.
+        FENCE_START,
+        // Holding characters until the end of a reasoning block is found.
+        HOLD,
+        // Sending the content.
+        BODY
+    }
+
+    private State state = State.LEADING;
+    private final StringBuilder held = new StringBuilder(256);
+    private final StringBuilder tail = new StringBuilder(16);
+    private int thinkEndMatched;
+
+    static String sanitize(String content) {
+        final var sanitizer = new ContentSanitizer();
+        final var out = new StringBuilder(content.length());
+        sanitizer.push(content, out);
+        sanitizer.finish(out);
+        return out.toString();
+    }
+
+    String push(String chunk) {
+        // Sanitize the next chunk of a streamed output, returning the part which is safe to send:
+        // some characters may be held back until the next chunk (or the end of the stream) is seen.
+        final var out = new StringBuilder(chunk.length() + tail.length());
+        push(chunk, out);
+        return out.toString();
+    }
+
+    String finish() {
+        // Flush the remaining characters once the stream is over.
+        final var out = new StringBuilder(held.length() + tail.length());
+        finish(out);
+        return out.toString();
+    }
+
+    private void push(String chunk, StringBuilder out) {
+        final var len = chunk.length();
+        var i = 0;
+        while (i < len) {
+            final var c = chunk.charAt(i);
+            switch (state) {
+                case LEADING -> {
+                    if (c <= ' ') {
+                        ++i;
+                    } else {
+                        // Don't consume this character: let the next state handle it.
+                        state = c == '<' ? State.THINK_START : c == '`' ? State.FENCE_START : State.HOLD;
+                    }
+                }
+                case THINK_START, FENCE_START -> {
+                    final var expected = state == State.THINK_START ? THINK_START : FENCE_START;
+                    if (c != expected.charAt(held.length())) {
+                        // This is the actual content.
+                        state = State.BODY;
+                        appendBody(held, 0, held.length(), out);
+                        held.setLength(0);
+                        continue;
+                    }
+                    held.append(c);
+                    ++i;
+                    if (held.length() == expected.length()) {
+                        // A fence is just removed, while a reasoning block is held until its end is found.
+                        if (state == State.FENCE_START) {
+                            held.setLength(0);
+                            state = State.LEADING;
+                        } else {
+                            state = State.HOLD;
+                        }
+                    }
+                }
+                case HOLD -> {
+                    // Some models don't start their reasoning block with a tag:
+                    // we can't tell whether this is the content until the end of this block is found.
+                    held.append(c);
+                    ++i;
+                    if (matchThinkEnd(c)) {
+                        held.setLength(0);
+                        state = State.LEADING;
+                    }
+                }
+                case BODY -> {
+                    appendBody(chunk, i, len, out);
+                    i = len;
+                }
+            }
+        }
+    }
+
+    private void finish(StringBuilder out) {
+        if (state != State.LEADING && state != State.BODY) {
+            // No reasoning block was found: what we have is the content.
+            appendBody(held, 0, held.length(), out);
+            held.setLength(0);
+        }
+        // Remove a closing fence and trailing whitespaces.
+        var end = trimEnd(tail, tail.length());
+        if (end >= FENCE_END.length() && tail.lastIndexOf(FENCE_END, end) == end - FENCE_END.length()) {
+            end = trimEnd(tail, end - FENCE_END.length());
+        }
+        out.append(tail, 0, end);
+        tail.setLength(0);
+        state = State.BODY;
+    }
+
+    private void appendBody(CharSequence content, int start, int end, StringBuilder out) {
+        // Hold back trailing whitespaces and backticks, which may be part of a closing fence.
+        var last = end - 1;
+        while (last >= start && isTailChar(content.charAt(last))) {
+            --last;
+        }
+        if (last >= start) {
+            out.append(tail).append(content, start, last + 1);
+            tail.setLength(0);
+        }
+        tail.append(content, last + 1, end);
+    }
+
+    private boolean matchThinkEnd(char c) {
+        if (c == THINK_END.charAt(thinkEndMatched)) {
+            if (++thinkEndMatched == THINK_END.length()) {
+                thinkEndMatched = 0;
+                return true;
+            }
+        } else {
+            // The first character of this tag is not repeated: no need to backtrack further.
+            thinkEndMatched = c == THINK_END.charAt(0) ? 1 : 0;
+        }
+        return false;
+    }
+
+    private static boolean isTailChar(char c) {
+        return c <= ' ' || c == '`';
+    }
+
+    private static int trimEnd(CharSequence s, int end) {
+        while (end > 0 && s.charAt(end - 1) <= ' ') {
+            --end;
+        }
+        return end;
+    }
+}
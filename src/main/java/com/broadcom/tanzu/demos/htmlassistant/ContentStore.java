@@ -0,0 +1,588 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+@Component
+class ContentStore {
+    static final String PROMPT = "prompt";
+    private static final String PREVIOUS = "previous";
+    private static final String HISTORY = "history";
+    static final String SOURCE = "source";
+    static final String TIMESTAMP = "timestamp";
+    static final String ETAG = "etag";
+    private static final String SUMMARY = "summary";
+    static final String SUMMARIZED = "summarized";
+    static final String ASSETS = "assets";
+    private static final String CLIENT = "client";
+    private static final TypeReference<List<String>> HISTORY_TYPE = new TypeReference<>() {
+    };
+
+    // Each content is stored as a single hash: most scripts below take the expiration
+    // (in milliseconds, 0 to disable) as first argument.
+    // Scripts only access the keys they are given, so that these can run on Redis Cluster.
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> READ_SCRIPT = RedisScript.of("""
+            if redis.call('exists', KEYS[1]) == 0 then
+                return {}
+            end
+            if ARGV[1] ~= '0' then
+                redis.call('pexpire', KEYS[1], ARGV[1])
+            end
+            return redis.call('hmget', KEYS[1], unpack(ARGV, 2))
+            """, List.class);
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> READ_HISTORY_SCRIPT = RedisScript.of("""
+            if redis.call('exists', KEYS[1]) == 0 then
+                return {}
+            end
+            if ARGV[1] ~= '0' then
+                redis.call('pexpire', KEYS[1], ARGV[1])
+            end
+            return redis.call('hmget', KEYS[1], 'prompt', 'previous', 'history', 'summary', 'summarized')
+            """, List.class);
+    // Contents served from the near cache are touched now and then: these are not considered idle
+    // by the tiering, and their expiration is extended when sliding expiration is enabled.
+    private static final RedisScript<Long> TOUCH_SCRIPT = RedisScript.of("""
+            if redis.call('hlen', KEYS[1]) == 0 then
+                return 0
+            end
+            if ARGV[1] ~= '0' then
+                redis.call('pexpire', KEYS[1], ARGV[1])
+            end
+            return 1
+            """, Long.class);
+    private static final RedisScript<Long> WRITE_SCRIPT = RedisScript.of("""
+            redis.call('hset', KEYS[1], unpack(ARGV, 2))
+            if ARGV[1] ~= '0' then
+                redis.call('pexpire', KEYS[1], ARGV[1])
+            end
+            return 1
+            """, Long.class);
+    // Assets are shared between contents: these are only written once (ARGV[2] is the number of assets).
+    private static final RedisScript<Long> STORE_SCRIPT = RedisScript.of("""
+            local assets = tonumber(ARGV[2])
+            for i = 1, assets do
+                if redis.call('exists', KEYS[i + 1]) == 0 then
+                    redis.call('hset', KEYS[i + 1], 'source', ARGV[i + 2])
+                end
+                if ARGV[1] ~= '0' then
+                    redis.call('pexpire', KEYS[i + 1], ARGV[1])
+                end
+            end
+            redis.call('hset', KEYS[1], unpack(ARGV, assets + 3))
+            if ARGV[1] ~= '0' then
+                redis.call('pexpire', KEYS[1], ARGV[1])
+            end
+            return 1
+            """, Long.class);
+    static final RedisScript<Long> CREATE_SCRIPT = RedisScript.of("""
+            local fields = { 'prompt', ARGV[2] }
+            if ARGV[5] ~= '' then
+                table.insert(fields, 'client')
+                table.insert(fields, ARGV[5])
+            end
+            if #KEYS > 1 then
+                local previous = redis.call('hmget', KEYS[2], 'prompt', 'history', 'summary', 'summarized')
+                if not previous[1] and ARGV[3] == 'false' then
+                    -- The previous content may still be stored using legacy keys.
+                    return 0
+                end
+                local history = previous[2] and cjson.decode(previous[2]) or {}
+                if previous[1] then
+                    table.insert(history, previous[1])
+                end
+                table.insert(fields, 'previous')
+                table.insert(fields, ARGV[4])
+                if #history > 0 then
+                    table.insert(fields, 'history')
+                    table.insert(fields, cjson.encode(history))
+                end
+                -- The summary of the oldest prompts still applies to this content.
+                if previous[3] and previous[4] then
+                    table.insert(fields, 'summary')
+                    table.insert(fields, previous[3])
+                    table.insert(fields, 'summarized')
+                    table.insert(fields, previous[4])
+                end
+            end
+            redis.call('hset', KEYS[1], unpack(fields))
+            if ARGV[1] ~= '0' then
+                redis.call('pexpire', KEYS[1], ARGV[1])
+            end
+            return 1
+            """, Long.class);
+
+    // The oldest previous prompts may be replaced with a summary, so that the prompt sent to the AI model
+    // stays within a budget: summarizedPrompts is the number of previous prompts covered by this summary.
+    record ContentHistory(String prompt, String previousId, List<String> previousPrompts, String previousSource,
+                          String summary, int summarizedPrompts) {
+        List<String> unsummarizedPrompts() {
+            return previousPrompts.subList(Math.min(summarizedPrompts, previousPrompts.size()), previousPrompts.size());
+        }
+    }
+
+    record NewContent(String contentId, String prompt, String previousId) {
+    }
+
+    record StoredContent(byte[] compressedSource, String etag, long timestamp) {
+        String source() {
+            return decompress(compressedSource);
+        }
+    }
+
+    // Much shorter than the content expiration and the tiering idle time.
+    private static final Duration NEAR_CACHE_TOUCH_INTERVAL = Duration.ofMinutes(1);
+
+    private final Logger logger = LoggerFactory.getLogger(ContentStore.class);
+    private final ContentConfig config;
+    private final StringRedisTemplate redis;
+    private final ObjectMapper objectMapper;
+    private final ContentTiering tiering;
+    private final Cache<String, StoredContent> nearCache;
+    private final Cache<String, Boolean> touchedContents;
+
+    ContentStore(ContentConfig config, StringRedisTemplate redis, ObjectMapper objectMapper, ContentTiering tiering) {
+        this.config = config;
+        this.redis = redis;
+        this.objectMapper = objectMapper;
+        this.tiering = tiering;
+        // Generated contents never change once stored: frequently accessed contents are kept in memory,
+        // up to a maximum size.
+        this.nearCache = Caffeine.newBuilder()
+                .maximumWeight(config.nearCacheSize().toBytes())
+                .<String, StoredContent>weigher((contentId, content) -> content.compressedSource().length)
+                .build();
+        this.touchedContents = Caffeine.newBuilder()
+                .expireAfterWrite(NEAR_CACHE_TOUCH_INTERVAL)
+                .build();
+    }
+
+    String getPrompt(String contentId) {
+        final var values = read(contentId, new HashSet<>(), PROMPT);
+        return values.isEmpty() ? null : toString(values.getFirst());
+    }
+
+    String getPreviousId(String contentId) {
+        final var values = read(contentId, new HashSet<>(), PREVIOUS);
+        return values.isEmpty() ? null : toString(values.getFirst());
+    }
+
+    String getClient(String contentId) {
+        final var values = read(contentId, new HashSet<>(), CLIENT);
+        return values.isEmpty() ? null : toString(values.getFirst());
+    }
+
+    StoredContent getCachedContent(String contentId) {
+        return nearCache.getIfPresent(contentId);
+    }
+
+    StoredContent getCachedContentAndTouch(String contentId) {
+        final var cachedContent = nearCache.getIfPresent(contentId);
+        if (cachedContent != null && touchedContents.asMap().putIfAbsent(contentId, Boolean.TRUE) == null) {
+            // Redis doesn't know this content is still being read: let's tell it in the background,
+            // at most once per interval.
+            Schedulers.boundedElastic().schedule(() -> touch(contentId, cachedContent));
+        }
+        return cachedContent;
+    }
+
+    private void touch(String contentId, StoredContent content) {
+        try {
+            final var key = "content::" + contentId;
+            final var touched = redis.execute(TOUCH_SCRIPT, List.of(key), readExpiration());
+            if (touched == null || touched == 0) {
+                // This content was moved to the segment store in the meantime.
+                tiering.promote(key);
+            }
+            final var expiration = Long.parseLong(readExpiration());
+            redis.executePipelined((RedisCallback<Object>) connection -> {
+                for (final var assetId : ContentAssets.references(content.source())) {
+                    final var assetKey = toBytes("asset::" + assetId);
+                    if (expiration == 0) {
+                        connection.keyCommands().touch(assetKey);
+                    } else {
+                        connection.keyCommands().pExpire(assetKey, expiration);
+                    }
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            logger.atWarn().log("Failed to touch content: {}", contentId, e);
+        }
+    }
+
+    void cacheContent(String contentId, StoredContent content) {
+        // This content was just read from Redis.
+        nearCache.put(contentId, content);
+        touchedContents.put(contentId, Boolean.TRUE);
+    }
+
+    StoredContent getContent(String contentId) {
+        final var cachedContent = getCachedContentAndTouch(contentId);
+        if (cachedContent != null) {
+            return cachedContent;
+        }
+        final var values = read(contentId, new HashSet<>(), SOURCE, ETAG, TIMESTAMP, ASSETS);
+        if (values.isEmpty() || values.get(0) == null || values.get(2) == null) {
+            return null;
+        }
+        expireAssets(values.get(3));
+        final var compressedSource = values.get(0);
+        // Contents stored before entity tags were introduced don't have one.
+        final var etag = values.get(1) != null ? toString(values.get(1)) : computeETag(decompress(compressedSource));
+        final var content = new StoredContent(compressedSource, etag, Long.parseLong(toString(values.get(2))));
+        cacheContent(contentId, content);
+        return content;
+    }
+
+    private void expireAssets(byte[] assets) {
+        // Assets referenced by a content must live as long as this content: all commands are sent at once.
+        final var expiration = Long.parseLong(readExpiration());
+        if (expiration == 0 || assets == null) {
+            return;
+        }
+        redis.executePipelined((RedisCallback<Object>) connection -> {
+            for (final var assetId : toString(assets).split(" ")) {
+                connection.keyCommands().pExpire(toBytes("asset::" + assetId), expiration);
+            }
+            return null;
+        });
+    }
+
+    StoredContent getAsset(String assetId) {
+        final var key = "asset::" + assetId;
+        final var cachedAsset = nearCache.getIfPresent(key);
+        if (cachedAsset != null) {
+            return cachedAsset;
+        }
+        var values = execute(READ_SCRIPT, List.of(key), readExpiration(), SOURCE);
+        if (values.isEmpty() && tiering.promote(key)) {
+            values = execute(READ_SCRIPT, List.of(key), readExpiration(), SOURCE);
+        }
+        if (values.isEmpty() || values.getFirst() == null) {
+            return null;
+        }
+        // Assets are named after their content: the name is a strong entity tag.
+        final var asset = new StoredContent(values.getFirst(), assetId, 0);
+        nearCache.put(key, asset);
+        return asset;
+    }
+
+    String getSource(String contentId) {
+        final var content = getContent(contentId);
+        return content == null ? null : inlineAssets(content.source());
+    }
+
+    ContentHistory getHistory(String contentId, boolean withPreviousSource) {
+        // Fetch the prompt history in a single round trip, whatever the number of previous prompts.
+        final var key = List.of("content::" + contentId);
+        var values = execute(READ_HISTORY_SCRIPT, key, readExpiration());
+        if (values.isEmpty() && (tiering.promote(key.getFirst()) || migrateLegacyContent(contentId, new HashSet<>()))) {
+            values = execute(READ_HISTORY_SCRIPT, key, readExpiration());
+        }
+        if (values.isEmpty()) {
+            return null;
+        }
+
+        final var previousId = toString(values.get(1));
+        // The previous content was most likely just read: it should be in the near cache.
+        final var previousSource = withPreviousSource && previousId != null ? getSource(previousId) : null;
+        final var summary = toString(values.get(3));
+        final var summarizedPrompts = summary != null && values.get(4) != null ? Integer.parseInt(toString(values.get(4))) : 0;
+        return new ContentHistory(toString(values.get(0)), previousId,
+                parseHistory(toString(values.get(2))), previousSource, summary, summarizedPrompts);
+    }
+
+    void createContent(String contentId, String prompt, String previousId, String client) {
+        // The prompt history is copied from the previous content, so that it can be read at once.
+        final var keys = StringUtils.hasText(previousId)
+                ? List.of("content::" + contentId, "content::" + previousId)
+                : List.of("content::" + contentId);
+        final var previousIdArg = StringUtils.hasText(previousId) ? previousId : "";
+        final var clientArg = StringUtils.hasText(client) ? client : "";
+        final var created = redis.execute(CREATE_SCRIPT, keys, expiration(), prompt, "false", previousIdArg, clientArg);
+        if (created == null || created == 0) {
+            if (!tiering.promote("content::" + previousId)) {
+                migrateLegacyContent(previousId, new HashSet<>());
+            }
+            redis.execute(CREATE_SCRIPT, keys, expiration(), prompt, "true", previousIdArg, clientArg);
+        }
+    }
+
+    void createContents(List<NewContent> contents) {
+        // Contents are created with a single round trip to Redis: as commands are run in order,
+        // a content may refer to a previous content created in the same pipeline.
+        // No client is stored: batch items are charged by the batch generator, against their own quota.
+        final var script = toBytes(CREATE_SCRIPT.getScriptAsString());
+        final var expiration = expiration();
+        final var created = redis.executePipelined((RedisCallback<Object>) connection -> {
+            for (final var content : contents) {
+                final var keysAndArgs = StringUtils.hasText(content.previousId())
+                        ? Stream.of("content::" + content.contentId(), "content::" + content.previousId(),
+                        expiration, content.prompt(), "false", content.previousId(), "")
+                        : Stream.of("content::" + content.contentId(), expiration, content.prompt(), "false", "", "");
+                connection.scriptingCommands().eval(script, ReturnType.INTEGER,
+                        StringUtils.hasText(content.previousId()) ? 2 : 1,
+                        keysAndArgs.map(ContentStore::toBytes).toArray(byte[][]::new));
+            }
+            return null;
+        });
+        for (var i = 0; i < contents.size(); i++) {
+            if (Long.valueOf(0).equals(created.get(i))) {
+                // The previous content may not be in Redis.
+                final var content = contents.get(i);
+                createContent(content.contentId(), content.prompt(), content.previousId(), null);
+            }
+        }
+    }
+
+    void storeSummary(String contentId, String summary, int summarizedPrompts) {
+        // Next contents will reuse this summary, which is copied along with the prompt history.
+        write(contentId, SUMMARY, summary, SUMMARIZED, String.valueOf(summarizedPrompts));
+    }
+
+    void storeSource(String contentId, String source) {
+        final var extraction = config.extractAssets() ? ContentAssets.extract(source) : new ContentAssets.Extraction(source, Map.of());
+        final var page = extraction.page();
+
+        // The source is compressed once, so that it can be sent as is to the clients.
+        final var content = new StoredContent(compress(page), computeETag(page), System.currentTimeMillis());
+        final var keys = new ArrayList<String>(extraction.assets().size() + 1);
+        keys.add("content::" + contentId);
+        final var args = new ArrayList<>(List.<Object>of(expiration(), extraction.assets().size()));
+        final var assets = new ArrayList<StoredContent>(extraction.assets().size());
+        for (final var asset : extraction.assets().entrySet()) {
+            keys.add("asset::" + asset.getKey());
+            assets.add(new StoredContent(compress(asset.getValue()), asset.getKey(), 0));
+            args.add(assets.getLast().compressedSource());
+        }
+        args.addAll(List.of(SOURCE, content.compressedSource(), ETAG, content.etag(),
+                TIMESTAMP, String.valueOf(content.timestamp())));
+        if (!extraction.assets().isEmpty()) {
+            args.addAll(List.of(ASSETS, String.join(" ", extraction.assets().keySet())));
+        }
+        write(STORE_SCRIPT, keys, args.toArray());
+
+        nearCache.put(contentId, content);
+        for (final var asset : assets) {
+            nearCache.put("asset::" + asset.etag(), asset);
+        }
+    }
+
+    private String inlineAssets(String page) {
+        final var assetIds = ContentAssets.references(page);
+        if (assetIds.isEmpty()) {
+            return page;
+        }
+        final var assets = new HashMap<String, String>();
+        for (final var assetId : assetIds) {
+            final var asset = getAsset(assetId);
+            if (asset != null) {
+                assets.put(assetId, asset.source());
+            } else {
+                logger.atWarn().log("Asset not found: {}", assetId);
+            }
+        }
+        return ContentAssets.inline(page, assets);
+    }
+
+    private List<byte[]> read(String contentId, Set<String> migratedIds, String... fields) {
+        final var key = List.of("content::" + contentId);
+        final var args = Stream.concat(Stream.of(readExpiration()), Arrays.stream(fields)).toArray();
+        var values = execute(READ_SCRIPT, key, args);
+        if (values.isEmpty() && (tiering.promote(key.getFirst()) || migrateLegacyContent(contentId, migratedIds))) {
+            values = execute(READ_SCRIPT, key, args);
+        }
+        return values;
+    }
+
+    private void write(String contentId, Object... fieldsAndValues) {
+        write(WRITE_SCRIPT, List.of("content::" + contentId),
+                Stream.concat(Stream.of(expiration()), Arrays.stream(fieldsAndValues)).toArray());
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private void write(RedisScript<Long> script, List<String> keys, Object[] args) {
+        // Arguments are written as raw bytes, since the content source is stored compressed.
+        redis.execute(script, RedisSerializer.byteArray(), (RedisSerializer) redis.getStringSerializer(),
+                keys, Arrays.stream(args).map(ContentStore::toBytes).toArray());
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private List<byte[]> execute(RedisScript<List> script, List<String> keys, Object... args) {
+        // Values are read as raw bytes, since the content source is stored compressed.
+        final List<byte[]> values = redis.execute(script, redis.getStringSerializer(),
+                (RedisSerializer) RedisSerializer.byteArray(), keys, args);
+        return values == null ? List.of() : values;
+    }
+
+    private boolean migrateLegacyContent(String contentId, Set<String> migratedIds) {
+        // Contents used to be stored with a Redis key per field: let's migrate them on the fly.
+        if (!StringUtils.hasText(contentId) || !migratedIds.add(contentId)) {
+            return false;
+        }
+        final var legacyKeys = Stream.of(PROMPT, PREVIOUS, SOURCE, TIMESTAMP, HISTORY)
+                .map(f -> "content::" + contentId + "::" + f).toList();
+        final var values = redis.opsForValue().multiGet(legacyKeys.subList(0, 4));
+        final var prompt = values == null ? null : values.get(0);
+        if (prompt == null) {
+            return false;
+        }
+        logger.atInfo().log("Migrating legacy content: {}", contentId);
+
+        final var previousId = values.get(1);
+        List<String> history = redis.opsForList().range(legacyKeys.get(4), 0, -1);
+        if ((history == null || history.isEmpty()) && StringUtils.hasText(previousId)) {
+            // Rebuild the prompt history from the previous content.
+            history = new ArrayList<>();
+            final var previousValues = read(previousId, migratedIds, PROMPT, HISTORY);
+            if (!previousValues.isEmpty() && previousValues.getFirst() != null) {
+                history.addAll(parseHistory(toString(previousValues.get(1))));
+                history.add(toString(previousValues.getFirst()));
+            }
+        }
+
+        final var fields = new ArrayList<Object>(List.of(PROMPT, prompt));
+        if (StringUtils.hasText(previousId)) {
+            fields.addAll(List.of(PREVIOUS, previousId));
+        }
+        if (history != null && !history.isEmpty()) {
+            try {
+                fields.addAll(List.of(HISTORY, objectMapper.writeValueAsString(history)));
+            } catch (JsonProcessingException e) {
+                throw new IllegalStateException("Failed to serialize prompt history for content: " + contentId, e);
+            }
+        }
+        if (values.get(2) != null) {
+            fields.addAll(List.<Object>of(SOURCE, compress(values.get(2)), ETAG, computeETag(values.get(2))));
+        }
+        if (values.get(3) != null) {
+            try {
+                fields.addAll(List.of(TIMESTAMP,
+                        String.valueOf(ZonedDateTime.parse(values.get(3)).toInstant().toEpochMilli())));
+            } catch (DateTimeParseException e) {
+                logger.atWarn().log("Failed to parse timestamp from content {}: {}", contentId, values.get(3), e);
+            }
+        }
+        write(contentId, fields.toArray());
+        redis.delete(legacyKeys);
+        return true;
+    }
+
+    private List<String> parseHistory(String history) {
+        if (history == null) {
+            return List.of();
+        }
+        try {
+            return objectMapper.readValue(history, HISTORY_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to parse prompt history: " + history, e);
+        }
+    }
+
+    String expiration() {
+        return String.valueOf(config.expiration().toMillis());
+    }
+
+    String readExpiration() {
+        // Reading a content may extend its lifetime.
+        return config.slidingExpiration() ? expiration() : "0";
+    }
+
+    private static byte[] toBytes(Object value) {
+        return value instanceof byte[] b ? b : value.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    static String toString(byte[] value) {
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+
+    static String computeETag(String source) {
+        // Use a strong entity tag, based on the content hash.
+        try {
+            final var digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 16);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+    }
+
+    static byte[] compress(String source) {
+        final var out = new ByteArrayOutputStream(source.length() / 4);
+        // Contents are compressed once and read many times: let's use the best compression level.
+        try (final var gzip = new GZIPOutputStream(out) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(source.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    static String decompress(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        try (final var gzip = new GZIPInputStream(new ByteArrayInputStream(data))) {
+            return new String(gzip.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@Component
+class ContentTiering {
+    // Only entries which have not been read (or written) for a while are moved to the segment store.
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SPILL_SCRIPT = RedisScript.of("""
+            local entries = {}
+            for _, key in ipairs(KEYS) do
+                local idle = redis.call('object', 'idletime', key)
+                if idle and idle >= tonumber(ARGV[1]) then
+                    local fields = redis.call('hgetall', key)
+                    table.insert(entries, key)
+                    table.insert(entries, tostring(redis.call('pttl', key)))
+                    table.insert(entries, tostring(#fields / 2))
+                    for _, value in ipairs(fields) do
+                        table.insert(entries, value)
+                    end
+                end
+            end
+            return entries
+            """, List.class);
+    // Entries are only removed from Redis once these are saved to the segment store,
+    // unless these have been updated in the meantime.
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> DELETE_SCRIPT = RedisScript.of("""
+            local deleted = {}
+            for i, key in ipairs(KEYS) do
+                local values = redis.call('hmget', key, 'etag', 'summarized')
+                if redis.call('hlen', key) == tonumber(ARGV[i * 3 - 2])
+                        and (values[1] or '') == ARGV[i * 3 - 1] and (values[2] or '') == ARGV[i * 3] then
+                    redis.call('del', key)
+                    table.insert(deleted, 1)
+                else
+                    table.insert(deleted, 0)
+                end
+            end
+            return deleted
+            """, List.class);
+    private static final RedisScript<Long> PROMOTE_SCRIPT = RedisScript.of("""
+            if redis.call('exists', KEYS[1]) == 1 then
+                return 0
+            end
+            redis.call('hset', KEYS[1], unpack(ARGV, 2))
+            if ARGV[1] ~= '0' then
+                redis.call('pexpire', KEYS[1], ARGV[1])
+            end
+            return 1
+            """, Long.class);
+
+    private final Logger logger = LoggerFactory.getLogger(ContentTiering.class);
+    private final TieringConfig config;
+    private final StringRedisTemplate redis;
+    private final SegmentStore segments;
+    private final Scheduler scheduler;
+    private final Disposable spilling;
+    private final Counter spills;
+    private final Counter promotions;
+
+    ContentTiering(TieringConfig config, StringRedisTemplate redis, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.redis = redis;
+        this.spills = Counter.builder("content.tiering.operations").tag("operation", "spill")
+                .description("Entries moved from Redis to the segment store").register(meterRegistry);
+        this.promotions = Counter.builder("content.tiering.operations").tag("operation", "promotion")
+                .description("Entries moved from the segment store back to Redis").register(meterRegistry);
+        if (!config.enabled()) {
+            this.segments = null;
+            this.scheduler = null;
+            this.spilling = null;
+            return;
+        }
+
+        this.segments = new SegmentStore(config.directory(), (int) config.segmentSize().toBytes());
+        Gauge.builder("content.tiering.entries", segments, SegmentStore::size)
+                .description("Entries in the segment store").register(meterRegistry);
+        Gauge.builder("content.tiering.disk.size", segments, SegmentStore::diskSize).baseUnit("bytes")
+                .description("Size of the segment files").register(meterRegistry);
+        this.scheduler = Schedulers.newSingle("content-tiering");
+        final var interval = config.interval().toMillis();
+        this.spilling = scheduler.schedulePeriodically(this::spill, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    boolean promote(String key) {
+        // Move this entry back to Redis, as it's being read again.
+        if (segments == null) {
+            return false;
+        }
+        final var entry = segments.get(key);
+        if (entry == null) {
+            return false;
+        }
+        var ttl = 0L;
+        if (entry.expiration() != 0) {
+            ttl = entry.expiration() - System.currentTimeMillis();
+            if (ttl <= 0) {
+                return false;
+            }
+        }
+        final var args = new ArrayList<byte[]>(entry.fields().size() * 2 + 1);
+        args.add(String.valueOf(ttl).getBytes(StandardCharsets.UTF_8));
+        for (final var field : entry.fields().entrySet()) {
+            args.add(field.getKey().getBytes(StandardCharsets.UTF_8));
+            args.add(field.getValue());
+        }
+        redis.execute(PROMOTE_SCRIPT, RedisSerializer.byteArray(), (RedisSerializer) redis.getStringSerializer(),
+                List.of(key), args.toArray());
+        segments.remove(key);
+        promotions.increment();
+        logger.atDebug().log("Moved entry back to Redis: {}", key);
+
+        // Assets referenced by a content may have been moved as well.
+        final var assets = entry.fields().get(ContentStore.ASSETS);
+        if (assets != null) {
+            for (final var assetId : ContentStore.toString(assets).split(" ")) {
+                promote("asset::" + assetId);
+            }
+        }
+        return true;
+    }
+
+    @PreDestroy
+    void dispose() {
+        if (segments != null) {
+            spilling.dispose();
+            scheduler.dispose();
+            segments.flush();
+        }
+    }
+
+    private void spill() {
+        try {
+            for (final var pattern : List.of("content::*", "asset::*")) {
+                final var options = ScanOptions.scanOptions().match(pattern).type(DataType.HASH)
+                        .count(config.batchSize()).build();
+                try (final var cursor = redis.scan(options)) {
+                    final var keys = new ArrayList<String>(config.batchSize());
+                    while (cursor.hasNext()) {
+                        keys.add(cursor.next());
+                        if (keys.size() == config.batchSize()) {
+                            spill(keys);
+                            keys.clear();
+                        }
+                    }
+                    if (!keys.isEmpty()) {
+                        spill(keys);
+                    }
+                }
+            }
+            segments.compact(config.compactionThreshold());
+        } catch (RuntimeException e) {
+            logger.atWarn().log("Failed to move entries to the segment store", e);
+        }
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private void spill(List<String> keys) {
+        final List<byte[]> values = redis.execute(SPILL_SCRIPT, redis.getStringSerializer(),
+                (RedisSerializer) RedisSerializer.byteArray(), keys, String.valueOf(config.idleTime().toSeconds()));
+        if (values == null || values.isEmpty()) {
+            return;
+        }
+
+        final var now = System.currentTimeMillis();
+        final var spilledKeys = new ArrayList<String>();
+        final var args = new ArrayList<String>();
+        var i = 0;
+        while (i < values.size()) {
+            final var key = ContentStore.toString(values.get(i));
+            final var ttl = Long.parseLong(ContentStore.toString(values.get(i + 1)));
+            final var fieldCount = Integer.parseInt(ContentStore.toString(values.get(i + 2)));
+            i += 3;
+            final var fields = new LinkedHashMap<String, byte[]>(fieldCount * 2);
+            for (var j = 0; j < fieldCount; j++, i += 2) {
+                fields.put(ContentStore.toString(values.get(i)), values.get(i + 1));
+            }
+            if (fields.isEmpty()) {
+                continue;
+            }
+            segments.put(key, fields, ttl > 0 ? now + ttl : 0);
+            spilledKeys.add(key);
+            args.add(String.valueOf(fieldCount));
+            args.add(fields.containsKey(ContentStore.ETAG) ? ContentStore.toString(fields.get(ContentStore.ETAG)) : "");
+            args.add(fields.containsKey(ContentStore.SUMMARIZED) ? ContentStore.toString(fields.get(ContentStore.SUMMARIZED)) : "");
+        }
+        if (spilledKeys.isEmpty()) {
+            return;
+        }
+        segments.flush();
+
+        final List<Long> deleted = redis.execute(DELETE_SCRIPT, spilledKeys, args.toArray());
+        var spilled = 0;
+        for (var k = 0; k < spilledKeys.size(); k++) {
+            if (deleted != null && deleted.get(k) == 1) {
+                spilled++;
+            } else {
+                // This entry is still in Redis.
+                segments.remove(spilledKeys.get(k));
+            }
+        }
+        spills.increment(spilled);
+        logger.atDebug().log("Moved {} entries to the segment store", spilled);
+    }
+}
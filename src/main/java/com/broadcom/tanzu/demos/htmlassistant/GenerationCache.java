@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+@Component
+class GenerationCache {
+    private static final Pattern WHITESPACES = Pattern.compile("\\s+");
+    // Only pick a cached content once enough variants have been generated for the same prompts.
+    private static final RedisScript<String> LOOKUP_SCRIPT = RedisScript.of("""
+            if redis.call('scard', KEYS[1]) < tonumber(ARGV[1]) then
+                return false
+            end
+            return redis.call('srandmember', KEYS[1])
+            """, String.class);
+
+    private final Logger logger = LoggerFactory.getLogger(GenerationCache.class);
+    private final ContentConfig config;
+    private final StringRedisTemplate redis;
+    private final ContentStore store;
+    private final Counter hits;
+    private final Counter misses;
+
+    GenerationCache(ContentConfig config, StringRedisTemplate redis, ContentStore store, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.redis = redis;
+        this.store = store;
+        this.hits = Counter.builder("content.generation.cache").tag("result", "hit")
+                .description("Content generations served from the cache").register(meterRegistry);
+        this.misses = Counter.builder("content.generation.cache").tag("result", "miss")
+                .description("Content generations not found in the cache").register(meterRegistry);
+    }
+
+    String getKey(ContentStore.ContentHistory history) {
+        // Contents generated with the same inputs are considered equivalent:
+        // prompts are normalized so that minor differences still hit the cache.
+        final MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not supported", e);
+        }
+        update(digest, config.model());
+        update(digest, config.prompt());
+        for (final var p : history.previousPrompts()) {
+            update(digest, normalize(p));
+        }
+        update(digest, normalize(history.prompt()));
+        if (history.previousSource() != null) {
+            update(digest, history.previousSource());
+        }
+        return "generation-cache::" + HexFormat.of().formatHex(digest.digest());
+    }
+
+    String lookup(String key) {
+        final var contentId = redis.execute(LOOKUP_SCRIPT, List.of(key), String.valueOf(config.cacheVariants()));
+        final var content = contentId == null ? null : store.getSource(contentId);
+        if (content == null) {
+            if (contentId != null) {
+                // This cached content has expired.
+                redis.opsForSet().remove(key, contentId);
+            }
+            misses.increment();
+            return null;
+        }
+        logger.atDebug().log("Found cached content {} for key {}", contentId, key);
+        hits.increment();
+        return content;
+    }
+
+    void add(String key, String contentId) {
+        redis.opsForSet().add(key, contentId);
+        if (!config.expiration().isZero()) {
+            redis.expire(key, config.expiration());
+        }
+    }
+
+    private static String normalize(String prompt) {
+        return WHITESPACES.matcher(prompt.strip()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import java.time.Duration;
+
+class GenerationRejectedException extends RuntimeException {
+    private final Duration retryAfter;
+
+    GenerationRejectedException(String contentId, Duration retryAfter) {
+        super("Too many pending content generations, rejecting content: " + contentId);
+        this.retryAfter = retryAfter;
+    }
+
+    Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+
+@Component
+class GenerationScheduler {
+    private final Logger logger = LoggerFactory.getLogger(GenerationScheduler.class);
+    private final ContentConfig config;
+    // AI model calls are mostly waiting for network I/O: let's run them on virtual threads.
+    private final Scheduler scheduler = Schedulers.fromExecutorService(
+            Executors.newVirtualThreadPerTaskExecutor(), "content-generation");
+    private final Deque<CompletableFuture<Void>> pending = new ArrayDeque<>();
+    private int running;
+
+    GenerationScheduler(ContentConfig config) {
+        this.config = config;
+    }
+
+    void admit(String contentId) {
+        // New generations are rejected right away when the queue is full,
+        // so that requests are rejected before any response is sent.
+        synchronized (this) {
+            if (running >= config.maxConcurrentGenerations() && pending.size() >= config.maxPendingGenerations()) {
+                throw new GenerationRejectedException(contentId, config.generationRetryAfter());
+            }
+        }
+    }
+
+    <T> Flux<T> schedule(String contentId, Flux<T> task) {
+        // A slot is only reserved once the task is subscribed, which is when the AI model is about to be called:
+        // instances waiting for a content generated elsewhere don't hold any slot.
+        return Flux.defer(() -> {
+            final var slot = new CompletableFuture<Void>();
+            synchronized (this) {
+                if (running < config.maxConcurrentGenerations()) {
+                    ++running;
+                    slot.complete(null);
+                } else if (pending.size() < config.maxPendingGenerations()) {
+                    logger.atDebug().log("Queuing content generation: {}", contentId);
+                    pending.add(slot);
+                } else {
+                    return Flux.error(new GenerationRejectedException(contentId, config.generationRetryAfter()));
+                }
+            }
+            return Mono.fromFuture(slot, true)
+                    .thenMany(task.subscribeOn(scheduler))
+                    .doFinally(signal -> release(slot));
+        });
+    }
+
+    private void release(CompletableFuture<Void> slot) {
+        synchronized (this) {
+            if (pending.remove(slot) || slot.isCancelled()) {
+                // This generation was cancelled while waiting for a slot: it never got one.
+                return;
+            }
+            // Hand over this slot to the next pending generation. The slot is handed over while holding the lock,
+            // so that a pending generation is either cancelled or gets this slot: never both.
+            CompletableFuture<Void> next;
+            while ((next = pending.poll()) != null) {
+                if (next.complete(null)) {
+                    return;
+                }
+            }
+            --running;
+        }
+    }
+
+    @PreDestroy
+    void dispose() {
+        scheduler.dispose();
+    }
+}
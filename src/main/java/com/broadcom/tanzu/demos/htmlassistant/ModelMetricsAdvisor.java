@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.ai.chat.client.advisor.api.AdvisedRequest;
+import org.springframework.ai.chat.client.advisor.api.AdvisedResponse;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.CallAroundAdvisorChain;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisor;
+import org.springframework.ai.chat.client.advisor.api.StreamAroundAdvisorChain;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.core.Ordered;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.TimeUnit;
+
+class ModelMetricsAdvisor implements CallAroundAdvisor, StreamAroundAdvisor {
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary promptSize;
+
+    ModelMetricsAdvisor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.promptSize = DistributionSummary.builder("content.model.prompt.size").baseUnit("characters")
+                .description("Size of the prompts sent to the AI model").register(meterRegistry);
+    }
+
+    @Override
+    public AdvisedResponse aroundCall(AdvisedRequest advisedRequest, CallAroundAdvisorChain chain) {
+        recordPromptSize(advisedRequest);
+        final var start = System.nanoTime();
+        try {
+            final var advisedResponse = chain.nextAroundCall(advisedRequest);
+            final var response = advisedResponse.response();
+            final var model = getModel(response);
+            recordLatency(model, "call", "success", start);
+            recordUsage(model, response != null ? response.getMetadata().getUsage() : null);
+            return advisedResponse;
+        } catch (RuntimeException e) {
+            recordLatency(null, "call", "error", start);
+            throw e;
+        }
+    }
+
+    @Override
+    public Flux<AdvisedResponse> aroundStream(AdvisedRequest advisedRequest, StreamAroundAdvisorChain chain) {
+        return Flux.defer(() -> {
+            recordPromptSize(advisedRequest);
+            final var start = System.nanoTime();
+            final var stream = new StreamState();
+            return chain.nextAroundStream(advisedRequest)
+                    .doOnNext(advisedResponse -> {
+                        final var response = advisedResponse.response();
+                        if (response == null) {
+                            return;
+                        }
+                        if (stream.model == null) {
+                            stream.model = getModel(response);
+                        }
+                        if (!stream.firstToken && hasText(response)) {
+                            // Time to first token is what users perceive as latency when contents are streamed.
+                            stream.firstToken = true;
+                            Timer.builder("content.model.first.token").tag("model", stream.model)
+                                    .description("Time to get the first token from the AI model")
+                                    .register(meterRegistry).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        }
+                        // Token usage is only available with the last chunks.
+                        final var usage = response.getMetadata().getUsage();
+                        if (usage != null && usage.getTotalTokens() != null && usage.getTotalTokens() > 0) {
+                            stream.usage = usage;
+                        }
+                    })
+                    .doOnComplete(() -> {
+                        recordLatency(stream.model, "stream", "success", start);
+                        recordUsage(stream.model, stream.usage);
+                    })
+                    .doOnError(e -> recordLatency(stream.model, "stream", "error", start));
+        });
+    }
+
+    private void recordPromptSize(AdvisedRequest advisedRequest) {
+        var size = 0;
+        if (advisedRequest.systemText() != null) {
+            size += advisedRequest.systemText().length();
+        }
+        if (advisedRequest.userText() != null) {
+            size += advisedRequest.userText().length();
+        }
+        promptSize.record(size);
+    }
+
+    private void recordLatency(String model, String mode, String outcome, long start) {
+        Timer.builder("content.model.latency")
+                .tag("model", model != null ? model : "unknown").tag("mode", mode).tag("outcome", outcome)
+                .description("Time to get a complete answer from the AI model")
+                .register(meterRegistry).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private void recordUsage(String model, Usage usage) {
+        if (usage == null) {
+            return;
+        }
+        recordTokens(model, "prompt", usage.getPromptTokens());
+        recordTokens(model, "completion", usage.getCompletionTokens());
+    }
+
+    private void recordTokens(String model, String type, Integer tokens) {
+        if (tokens == null || tokens <= 0) {
+            return;
+        }
+        Counter.builder("content.model.tokens").baseUnit("tokens")
+                .tag("model", model != null ? model : "unknown").tag("type", type)
+                .description("Tokens used by the AI model")
+                .register(meterRegistry).increment(tokens);
+    }
+
+    private static String getModel(ChatResponse response) {
+        if (response == null || !StringUtils.hasText(response.getMetadata().getModel())) {
+            return "unknown";
+        }
+        return response.getMetadata().getModel();
+    }
+
+    private static boolean hasText(ChatResponse response) {
+        final var result = response.getResult();
+        return result != null && result.getOutput() != null && StringUtils.hasLength(result.getOutput().getText());
+    }
+
+    private static class StreamState {
+        String model;
+        boolean firstToken;
+        Usage usage;
+    }
+
+    @Override
+    public String getName() {
+        return "ModelMetricsAdvisor";
+    }
+
+    @Override
+    public int getOrder() {
+        // Run right before the AI model is called (which is the last advisor),
+        // once the prompt has been augmented by the other advisors.
+        return Ordered.LOWEST_PRECEDENCE - 1;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+@Component
+class PromptCompactor {
+    // The most recent instructions are always kept as they are.
+    private static final int KEPT_PROMPTS = 3;
+    // Tokens used by the instructions added to the prompt (see ContentAdvisor).
+    private static final int PROMPT_OVERHEAD = 250;
+    private static final int MAX_SUMMARY_WORDS = 200;
+    private static final String SUMMARY_PROMPT = """
+            You summarize the instructions a user gave to generate a website, one instruction after another. \
+            Keep every detail which still applies to the website (such as sections, texts, colors or layout), \
+            and drop the details overridden by later instructions. \
+            Only answer with the summary, as plain text, using less than %d words.""".formatted(MAX_SUMMARY_WORDS);
+
+    private final Logger logger = LoggerFactory.getLogger(PromptCompactor.class);
+    private final ContentConfig config;
+    private final ChatClient chatClient;
+    private final ContentStore store;
+    private final MeterRegistry meterRegistry;
+
+    PromptCompactor(ContentConfig config, ChatClient chatClient, ContentStore store, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.chatClient = chatClient;
+        this.store = store;
+        this.meterRegistry = meterRegistry;
+    }
+
+    ContentStore.ContentHistory compact(String contentId, ContentStore.ContentHistory history) {
+        // Make sure the prompt sent to the AI model stays within the token budget,
+        // whatever the number of previous prompts.
+        final var budget = config.promptTokenBudget();
+        if (budget <= 0 || estimate(history) <= budget) {
+            return history;
+        }
+
+        // First, summarize the oldest instructions: the summary is stored, so that the next contents
+        // only need to summarize the new instructions along with this summary.
+        if (history.unsummarizedPrompts().size() > KEPT_PROMPTS) {
+            history = summarize(contentId, history);
+            if (estimate(history) <= budget) {
+                return history;
+            }
+        }
+
+        // Then, reduce the size of the previous content.
+        if (history.previousSource() != null) {
+            // The previous content may already be minified (see ContentGenerator): there's nothing to gain then.
+            final var minifiedSource = ContentMinifier.minify(history.previousSource());
+            if (!minifiedSource.equals(history.previousSource())) {
+                history = withSource(history, minifiedSource);
+                count("minify");
+                if (estimate(history) <= budget) {
+                    logger.atInfo().log("Minified previous content to fit the token budget: {}", contentId);
+                    return history;
+                }
+            }
+            history = withSource(history, truncate(history.previousSource(), budget - estimate(withSource(history, null))));
+            count("truncate");
+            logger.atInfo().log("Truncated previous content to fit the token budget: {}", contentId);
+            if (estimate(history) <= budget) {
+                return history;
+            }
+        }
+
+        // As a last resort, drop the oldest instructions.
+        final var summarizedPrompts = history.summarizedPrompts();
+        while (estimate(history) > budget && history.summarizedPrompts() < history.previousPrompts().size()) {
+            history = new ContentStore.ContentHistory(history.prompt(), history.previousId(), history.previousPrompts(),
+                    history.previousSource(), history.summary(), history.summarizedPrompts() + 1);
+        }
+        if (history.summarizedPrompts() > summarizedPrompts) {
+            count("drop");
+            logger.atWarn().log("Dropped {} previous instructions to fit the token budget: {}",
+                    history.summarizedPrompts() - summarizedPrompts, contentId);
+        }
+        return history;
+    }
+
+    private ContentStore.ContentHistory summarize(String contentId, ContentStore.ContentHistory history) {
+        final var prompts = history.unsummarizedPrompts();
+        final var newPrompts = prompts.subList(0, prompts.size() - KEPT_PROMPTS);
+        final var text = new StringBuilder(4096);
+        if (history.summary() != null) {
+            text.append("summary of the first instructions: ").append(history.summary()).append("\n");
+        }
+        for (final var p : newPrompts) {
+            text.append("instruction: ").append(p).append("\n");
+        }
+
+        logger.atInfo().log("Summarizing {} previous instructions: {}", newPrompts.size(), contentId);
+        final String summary;
+        try {
+            summary = chatClient.prompt().system(SUMMARY_PROMPT).user(text.toString()).call().content();
+        } catch (RuntimeException e) {
+            logger.atWarn().log("Failed to summarize previous instructions: {}", contentId, e);
+            return history;
+        }
+        if (!StringUtils.hasText(summary)) {
+            return history;
+        }
+        count("summary");
+        var newSummary = ContentSanitizer.sanitize(summary).strip();
+        if (newSummary.length() > MAX_SUMMARY_WORDS * 8) {
+            // Some AI models don't follow the instructions: the summary must not grow indefinitely.
+            newSummary = newSummary.substring(0, MAX_SUMMARY_WORDS * 8);
+        }
+        final var summarizedPrompts = history.summarizedPrompts() + newPrompts.size();
+        store.storeSummary(contentId, newSummary, summarizedPrompts);
+        return new ContentStore.ContentHistory(history.prompt(), history.previousId(), history.previousPrompts(),
+                history.previousSource(), newSummary, summarizedPrompts);
+    }
+
+    private int estimate(ContentStore.ContentHistory history) {
+        var tokens = PROMPT_OVERHEAD + TokenEstimator.estimate(config.prompt()) + TokenEstimator.estimate(history.prompt())
+                + TokenEstimator.estimate(history.summary()) + TokenEstimator.estimate(history.previousSource());
+        for (final var p : history.unsummarizedPrompts()) {
+            tokens += TokenEstimator.estimate(p) + 2;
+        }
+        return tokens;
+    }
+
+    private void count(String step) {
+        meterRegistry.counter("content.prompt.compactions", "step", step).increment();
+    }
+
+    private static String truncate(String source, int maxTokens) {
+        // Keep some room for the marker added at the end.
+        maxTokens -= 16;
+        if (maxTokens <= 0) {
+            return null;
+        }
+        final var tokens = TokenEstimator.estimate(source);
+        if (tokens <= maxTokens) {
+            return source;
+        }
+        var end = (int) ((long) source.length() * maxTokens / tokens);
+        final var lineEnd = source.lastIndexOf('\n', end);
+        if (lineEnd > 0) {
+            end = lineEnd;
+        }
+        return source.substring(0, end) + "\n<!-- the rest of this page was truncated -->\n";
+    }
+
+    private static ContentStore.ContentHistory withSource(ContentStore.ContentHistory history, String source) {
+        return new ContentStore.ContentHistory(history.prompt(), history.previousId(), history.previousPrompts(),
+                source, history.summary(), history.summarizedPrompts());
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+@Component
+class RateLimiter {
+    // Each client gets a token bucket per quota, shared between all instances: a token is added to the bucket
+    // every refill interval (ARGV[2], in milliseconds), up to the capacity (ARGV[1]).
+    // The bucket is full again once it expires. Returns whether a token was taken,
+    // and the delay until the next token otherwise.
+    @SuppressWarnings("rawtypes")
+    static final RedisScript<List> TOKEN_BUCKET_SCRIPT = RedisScript.of("""
+            local time = redis.call('time')
+            local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+            local capacity = tonumber(ARGV[1])
+            local interval = tonumber(ARGV[2])
+            local bucket = redis.call('hmget', KEYS[1], 'tokens', 'timestamp')
+            local tokens = tonumber(bucket[1]) or capacity
+            local timestamp = tonumber(bucket[2]) or now
+            local refill = math.floor((now - timestamp) / interval)
+            if refill > 0 then
+                tokens = math.min(capacity, tokens + refill)
+                timestamp = timestamp + refill * interval
+            end
+            if tokens >= capacity then
+                timestamp = now
+            end
+            if tokens < 1 then
+                return { 0, interval - (now - timestamp) }
+            end
+            redis.call('hset', KEYS[1], 'tokens', tokens - 1, 'timestamp', timestamp)
+            redis.call('pexpire', KEYS[1], capacity * interval)
+            return { 1, 0 }
+            """, List.class);
+
+    enum Quota {
+        // Prompts (or batches of prompts) submitted by a client.
+        PROMPTS,
+        // Contents generated with the AI model for a client: contents reused from the cache are free.
+        GENERATIONS,
+        // Batch items generated for a client, with their own quota: a batch may hold many more items
+        // than a client would submit interactively.
+        BATCH
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(RateLimiter.class);
+    private final RateLimitConfig config;
+    private final StringRedisTemplate redis;
+    private final Map<Quota, Counter> allowedRequests = new EnumMap<>(Quota.class);
+    private final Map<Quota, Counter> rejectedRequests = new EnumMap<>(Quota.class);
+
+    RateLimiter(RateLimitConfig config, StringRedisTemplate redis, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.redis = redis;
+        for (final var quota : Quota.values()) {
+            allowedRequests.put(quota, Counter.builder("content.ratelimit.requests")
+                    .tag("quota", quota.name().toLowerCase()).tag("result", "allowed")
+                    .description("Requests allowed by the rate limiter").register(meterRegistry));
+            rejectedRequests.put(quota, Counter.builder("content.ratelimit.requests")
+                    .tag("quota", quota.name().toLowerCase()).tag("result", "rejected")
+                    .description("Requests rejected by the rate limiter").register(meterRegistry));
+        }
+    }
+
+    String getClient(HttpServletRequest req) {
+        // The client key is stored along with the contents it submits, so that their generation
+        // is charged to this client: no key is set when rate limiting is disabled.
+        if (!config.enabled()) {
+            return "";
+        }
+        return config.key() == RateLimitConfig.ClientKey.SESSION
+                ? "session::" + req.getSession().getId() : "ip::" + req.getRemoteAddr();
+    }
+
+    void acquire(Quota quota, String client) {
+        if (!config.enabled() || !StringUtils.hasText(client)) {
+            return;
+        }
+        @SuppressWarnings("unchecked") final List<Long> result = redis.execute(TOKEN_BUCKET_SCRIPT,
+                keys(quota, client), args(quota));
+        check(quota, client, result);
+    }
+
+    boolean isEnabled() {
+        return config.enabled();
+    }
+
+    RateLimitConfig.ClientKey getClientKey() {
+        return config.key();
+    }
+
+    List<String> keys(Quota quota, String client) {
+        return List.of("ratelimit::" + quota.name().toLowerCase() + "::" + client);
+    }
+
+    Object[] args(Quota quota) {
+        return quota == Quota.BATCH
+                ? new Object[]{String.valueOf(config.batchCapacity()), String.valueOf(config.batchRefillInterval().toMillis())}
+                : new Object[]{String.valueOf(config.capacity()), String.valueOf(config.refillInterval().toMillis())};
+    }
+
+    static long toSeconds(Duration retryAfter) {
+        // Retry-After is set in seconds: clients retrying too early would be rejected again.
+        return Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+    }
+
+    void check(Quota quota, String client, List<Long> result) {
+        if (result.get(0) == 1) {
+            allowedRequests.get(quota).increment();
+            return;
+        }
+        rejectedRequests.get(quota).increment();
+        logger.atDebug().log("Rate limit exceeded by client {}: {}", client, quota);
+        throw new RateLimitedException(client, Duration.ofMillis(result.get(1)));
+    }
+}
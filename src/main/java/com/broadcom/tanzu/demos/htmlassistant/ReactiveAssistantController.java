@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.UUID;
+
+// Reactive counterpart of AssistantController, used when the app runs on WebFlux.
+@Controller
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+class ReactiveAssistantController {
+    private final Logger logger = LoggerFactory.getLogger(ReactiveAssistantController.class);
+    private final ContentConfig config;
+    private final ReactiveContentStore store;
+    private final ContentGenerator generator;
+    private final ReactiveRateLimiter limiter;
+
+    ReactiveAssistantController(ContentConfig config, ReactiveContentStore store, ContentGenerator generator,
+                                ReactiveRateLimiter limiter) {
+        this.config = config;
+        this.store = store;
+        this.generator = generator;
+        this.limiter = limiter;
+    }
+
+    @ModelAttribute("model")
+    String getModelName() {
+        return config.model();
+    }
+
+    @GetMapping("/assistant")
+    String newPage(Model model, @ModelAttribute AssistantForm form) {
+        return "assistant";
+    }
+
+    @GetMapping("/assistant/{id}")
+    Mono<String> getPage(Model model, @ModelAttribute AssistantForm form, @PathVariable("id") String contentId) {
+        // Load prompt.
+        return store.getPrompt(contentId)
+                .filter(StringUtils::hasText)
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Content not found")))
+                .map(prompt -> {
+                    // Initialize the form with existing values.
+                    form.setPreviousContentId(contentId);
+                    form.setPrompt(prompt);
+
+                    // Put the content id in the model to trigger content loading - which may be
+                    // asynchronously generated as the content is loaded in the iframe.
+                    model.addAttribute("contentId", contentId);
+
+                    return "assistant";
+                });
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    ResponseEntity<?> handleIllegalArgumentException(IllegalArgumentException e) {
+        return ResponseEntity.notFound().build();
+    }
+
+    @ExceptionHandler(RateLimitedException.class)
+    ResponseEntity<?> handleRateLimitedException(RateLimitedException e) {
+        logger.atInfo().log("Rendering 429 page: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .cacheControl(CacheControl.noStore())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(RateLimiter.toSeconds(e.getRetryAfter())))
+                .body("Too many prompts submitted: please try again later.");
+    }
+
+    @PostMapping("/assistant")
+    Mono<String> submitPrompt(@ModelAttribute AssistantForm form, ServerWebExchange exchange) {
+        logger.atDebug().log("Received assistant form: {}", form);
+
+        final var previousContentId = form.getPreviousContentId();
+        final var newContentId = UUID.randomUUID().toString();
+        final var prompt = form.getPrompt();
+        logger.atInfo().log("Submitting prompt for content {}: {}", newContentId, prompt);
+
+        if (StringUtils.hasText(previousContentId)) {
+            logger.atInfo().log("Linking new content {} to previous content {}", newContentId, previousContentId);
+        }
+        // Each prompt is going to be sent to the AI model: the client quota is checked first.
+        return limiter.getClient(exchange)
+                .flatMap(client -> limiter.acquire(RateLimiter.Quota.PROMPTS, client)
+                        .then(store.createContent(newContentId, prompt, previousContentId, client)))
+                .then(Mono.fromSupplier(() -> {
+                    if (StringUtils.hasText(previousContentId) && !config.reuseContent()) {
+                        // The previous content may still be generated: it's now superseded by this new content,
+                        // which doesn't use it (otherwise the new generation waits for the previous content).
+                        generator.cancel(previousContentId);
+                    }
+                    if (config.generateOnSubmit()) {
+                        // Generation starts right now, while the browser is being redirected:
+                        // the content request will then attach to this generation.
+                        generator.prefetch(newContentId);
+                    }
+                    // Let's redirect the user to a brand new page to avoid "Refresh" issues with POST requests.
+                    return "redirect:/assistant/" + newContentId;
+                }));
+    }
+}
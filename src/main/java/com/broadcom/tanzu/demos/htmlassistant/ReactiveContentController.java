@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+// Reactive counterpart of ContentController, used when the app runs on WebFlux:
+// no thread is held while contents are being generated.
+@Controller
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+class ReactiveContentController {
+    private static final MediaType TEXT_HTML_UTF8 = new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8);
+
+    private final Logger logger = LoggerFactory.getLogger(ReactiveContentController.class);
+    private final ReactiveContentStore store;
+    private final ContentGenerator generator;
+    private final Counter storedContents;
+    private final Counter notModifiedContents;
+    private final Counter generatedContents;
+
+    ReactiveContentController(ReactiveContentStore store, ContentGenerator generator, MeterRegistry meterRegistry) {
+        this.store = store;
+        this.generator = generator;
+        this.storedContents = Counter.builder("content.requests").tag("result", "hit")
+                .description("Content requests served from the store").register(meterRegistry);
+        this.notModifiedContents = Counter.builder("content.requests").tag("result", "not-modified")
+                .description("Content requests served from the client cache").register(meterRegistry);
+        this.generatedContents = Counter.builder("content.requests").tag("result", "generated")
+                .description("Content requests served while generating the content").register(meterRegistry);
+    }
+
+    @GetMapping(value = "/content/site-{id}", produces = "text/html;charset=UTF-8")
+    Mono<Void> generateContent(@PathVariable("id") String contentId, ServerWebExchange exchange) {
+        final var resp = exchange.getResponse();
+        // Enable HTTP cache on client side.
+        resp.getHeaders().setCacheControl(CacheControl.maxAge(Duration.ofDays(7)).cachePublic().immutable());
+
+        // Responses depend on the encodings supported by the client.
+        resp.getHeaders().setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+
+        // Stored contents are sent right away, while other contents are generated.
+        return store.getContent(contentId)
+                .map(existingContent -> sendStoredContent(contentId, existingContent, exchange))
+                .switchIfEmpty(Mono.fromSupplier(() -> sendGeneratedContent(contentId, exchange)))
+                .flatMap(Function.identity());
+    }
+
+    private Mono<Void> sendStoredContent(String contentId, ContentStore.StoredContent content, ServerWebExchange exchange) {
+        final var etag = ContentController.selectETag(content.etag(),
+                exchange.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING),
+                exchange.getRequest().getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH));
+        if (exchange.checkNotModified(etag, Instant.ofEpochMilli(content.timestamp()))) {
+            // The client already has a "cached" content (ETag header is set): a 304 is returned.
+            logger.atDebug().log("Using cached content: {}", contentId);
+            notModifiedContents.increment();
+            return exchange.getResponse().setComplete();
+        }
+        // The client doesn't have this content yet: let's just return the content as it is stored.
+        logger.atDebug().log("Reusing existing content: {}", contentId);
+        storedContents.increment();
+        return writeContent(content, TEXT_HTML_UTF8, exchange);
+    }
+
+    private Mono<Void> sendGeneratedContent(String contentId, ServerWebExchange exchange) {
+        final var resp = exchange.getResponse();
+        return store.getPrompt(contentId)
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Content not found: " + contentId)))
+                .flatMap(prompt -> {
+                    final var content = ContentController.keepAlive(generator.generate(contentId));
+                    generatedContents.increment();
+                    resp.getHeaders().setZonedDateTime(HttpHeaders.LAST_MODIFIED, ZonedDateTime.now());
+                    resp.getHeaders().setContentType(TEXT_HTML_UTF8);
+                    // Send each chunk as soon as it's generated.
+                    return resp.writeAndFlushWith(content.map(chunk -> Mono.just(
+                            resp.bufferFactory().wrap(chunk.getBytes(StandardCharsets.UTF_8)))));
+                });
+    }
+
+    @GetMapping("/content/asset-{id}")
+    Mono<Void> getAsset(@PathVariable("id") String assetId, ServerWebExchange exchange) {
+        if (!ContentAssets.isAssetId(assetId)) {
+            return Mono.error(new IllegalArgumentException("Asset not found: " + assetId));
+        }
+        return store.getAsset(assetId)
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Asset not found: " + assetId)))
+                .flatMap(asset -> {
+                    final var resp = exchange.getResponse();
+                    // Assets are named after their content, so they never change: these can be cached for a long time.
+                    resp.getHeaders().setCacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable());
+                    resp.getHeaders().setVary(List.of(HttpHeaders.ACCEPT_ENCODING));
+                    final var etag = ContentController.selectETag(asset.etag(),
+                            exchange.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING),
+                            exchange.getRequest().getHeaders().getFirst(HttpHeaders.IF_NONE_MATCH));
+                    if (exchange.checkNotModified(etag)) {
+                        return resp.setComplete();
+                    }
+                    return writeContent(asset, MediaType.parseMediaType(ContentAssets.contentType(assetId)), exchange);
+                });
+    }
+
+    private Mono<Void> writeContent(ContentStore.StoredContent content, MediaType contentType, ServerWebExchange exchange) {
+        // Contents are stored compressed: most clients accept this encoding,
+        // so the content can be sent without any processing.
+        final var resp = exchange.getResponse();
+        final byte[] body;
+        if (ContentController.acceptsGzip(exchange.getRequest().getHeaders().getFirst(HttpHeaders.ACCEPT_ENCODING))) {
+            resp.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+            body = content.compressedSource();
+        } else {
+            body = content.source().getBytes(StandardCharsets.UTF_8);
+        }
+        resp.getHeaders().setContentType(contentType);
+        resp.getHeaders().setContentLength(body.length);
+        return resp.writeWith(Mono.just(resp.bufferFactory().wrap(body)));
+    }
+
+    @ExceptionHandler(GenerationRejectedException.class)
+    ResponseEntity<?> handleGenerationRejectedException(GenerationRejectedException e, ServerWebExchange exchange) {
+        abortIfCommitted(e, exchange);
+        logger.atWarn().log("Rendering 503 page: {}", e.getMessage());
+        // Make sure this response is not cached, as the client is expected to retry later.
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .cacheControl(CacheControl.noStore())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfter().toSeconds()))
+                .build();
+    }
+
+    @ExceptionHandler(GenerationCancelledException.class)
+    ResponseEntity<?> handleGenerationCancelledException(GenerationCancelledException e, ServerWebExchange exchange) {
+        // A superseded content is not expected to be read anymore.
+        abortIfCommitted(e, exchange);
+        logger.atDebug().log("Rendering 204 page: {}", e.getMessage());
+        return ResponseEntity.noContent().cacheControl(CacheControl.noStore()).build();
+    }
+
+    private static void abortIfCommitted(RuntimeException e, ServerWebExchange exchange) {
+        // Part of the content was already sent: the response must not end as if it were complete,
+        // since it would then be cached. The error is left to the server, which closes the connection.
+        if (exchange.getResponse().isCommitted()) {
+            throw e;
+        }
+    }
+
+    @ExceptionHandler(RateLimitedException.class)
+    ResponseEntity<?> handleRateLimitedException(RateLimitedException e, ServerWebExchange exchange) {
+        // The generation may be rejected once it gets a slot, after some whitespace was sent.
+        abortIfCommitted(e, exchange);
+        logger.atInfo().log("Rendering 429 page: {}", e.getMessage());
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .cacheControl(CacheControl.noStore())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(RateLimiter.toSeconds(e.getRetryAfter())))
+                .build();
+    }
+
+    @ExceptionHandler(IllegalArgumentException.class)
+    ResponseEntity<?> handleIllegalArgumentException(IllegalArgumentException e) {
+        logger.atWarn().log("Rendering 404 page", e);
+        return ResponseEntity.notFound().build();
+    }
+}
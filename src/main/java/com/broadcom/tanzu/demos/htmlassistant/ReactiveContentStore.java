@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+class ReactiveContentStore {
+    private final ContentStore store;
+    private final ReactiveStringRedisTemplate redis;
+    private final ReactiveRedisTemplate<String, byte[]> binaryRedis;
+
+    ReactiveContentStore(ContentStore store, ReactiveStringRedisTemplate redis,
+                         ReactiveRedisTemplate<String, byte[]> binaryRedis) {
+        this.store = store;
+        this.redis = redis;
+        this.binaryRedis = binaryRedis;
+    }
+
+    Mono<String> getPrompt(String contentId) {
+        final var key = "content::" + contentId;
+        return withExpiration(key, redis.<String, String>opsForHash().get(key, ContentStore.PROMPT))
+                // This content may still be stored using legacy keys, or in the segment store.
+                .switchIfEmpty(blocking(() -> store.getPrompt(contentId)));
+    }
+
+    Mono<ContentStore.StoredContent> getContent(String contentId) {
+        final var cachedContent = store.getCachedContentAndTouch(contentId);
+        if (cachedContent != null) {
+            return Mono.just(cachedContent);
+        }
+        final var key = "content::" + contentId;
+        return withExpiration(key, binaryRedis.<String, byte[]>opsForHash()
+                        .multiGet(key, List.of(ContentStore.PROMPT, ContentStore.SOURCE, ContentStore.ETAG,
+                                ContentStore.TIMESTAMP, ContentStore.ASSETS)))
+                .flatMap(values -> {
+                    if (values.get(0) == null) {
+                        // This content may still be stored using legacy keys, or in the segment store.
+                        return blocking(() -> store.getContent(contentId));
+                    }
+                    if (values.get(1) == null || values.get(3) == null) {
+                        // This content has not been generated yet.
+                        return Mono.empty();
+                    }
+                    final var compressedSource = values.get(1);
+                    // Contents stored before entity tags were introduced don't have one.
+                    final var etag = values.get(2) != null
+                            ? ContentStore.toString(values.get(2))
+                            : ContentStore.computeETag(ContentStore.decompress(compressedSource));
+                    final var content = new ContentStore.StoredContent(compressedSource, etag,
+                            Long.parseLong(ContentStore.toString(values.get(3))));
+                    store.cacheContent(contentId, content);
+                    return expireAssets(values.get(4)).thenReturn(content);
+                });
+    }
+
+    Mono<ContentStore.StoredContent> getAsset(String assetId) {
+        final var key = "asset::" + assetId;
+        final var cachedAsset = store.getCachedContent(key);
+        if (cachedAsset != null) {
+            return Mono.just(cachedAsset);
+        }
+        return withExpiration(key, binaryRedis.<String, byte[]>opsForHash().get(key, ContentStore.SOURCE))
+                .map(source -> {
+                    // Assets are named after their content: the name is a strong entity tag.
+                    final var asset = new ContentStore.StoredContent(source, assetId, 0);
+                    store.cacheContent(key, asset);
+                    return asset;
+                })
+                // This asset may be stored in the segment store.
+                .switchIfEmpty(blocking(() -> store.getAsset(assetId)));
+    }
+
+    Mono<Void> createContent(String contentId, String prompt, String previousId, String client) {
+        // The prompt history is copied from the previous content, so that it can be read at once.
+        final var keys = StringUtils.hasText(previousId)
+                ? List.of("content::" + contentId, "content::" + previousId)
+                : List.of("content::" + contentId);
+        final var previousIdArg = StringUtils.hasText(previousId) ? previousId : "";
+        final var clientArg = StringUtils.hasText(client) ? client : "";
+        return redis.execute(ContentStore.CREATE_SCRIPT, keys,
+                        List.of(store.expiration(), prompt, "false", previousIdArg, clientArg))
+                .next()
+                .flatMap(created -> created != 0 ? Mono.<Void>empty() : blocking(() -> {
+                    // The previous content may still be stored using legacy keys.
+                    store.createContent(contentId, prompt, previousId, client);
+                    return null;
+                }))
+                .then();
+    }
+
+    private <T> Mono<T> withExpiration(String key, Mono<T> read) {
+        // Reading a content may extend its lifetime: both commands are sent at once.
+        final var expiration = Long.parseLong(store.readExpiration());
+        if (expiration == 0) {
+            return read;
+        }
+        return Mono.zip(read, redis.expire(key, Duration.ofMillis(expiration)), (value, expired) -> value);
+    }
+
+    private Mono<Void> expireAssets(byte[] assets) {
+        // Assets referenced by a content must live as long as this content.
+        final var expiration = Long.parseLong(store.readExpiration());
+        if (expiration == 0 || assets == null) {
+            return Mono.empty();
+        }
+        return Flux.fromArray(ContentStore.toString(assets).split(" "))
+                .flatMap(assetId -> redis.expire("asset::" + assetId, Duration.ofMillis(expiration)))
+                .then();
+    }
+
+    private static <T> Mono<T> blocking(Callable<T> task) {
+        // Legacy contents are rare: these are migrated using the blocking store.
+        return Mono.fromCallable(task).subscribeOn(Schedulers.boundedElastic());
+    }
+}
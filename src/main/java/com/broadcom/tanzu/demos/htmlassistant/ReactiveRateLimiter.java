@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.data.redis.core.ReactiveStringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+// Reactive counterpart of RateLimiter, used when the app runs on WebFlux.
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+class ReactiveRateLimiter {
+    private final RateLimiter limiter;
+    private final ReactiveStringRedisTemplate redis;
+
+    ReactiveRateLimiter(RateLimiter limiter, ReactiveStringRedisTemplate redis) {
+        this.limiter = limiter;
+        this.redis = redis;
+    }
+
+    @SuppressWarnings("unchecked")
+    Mono<Void> acquire(RateLimiter.Quota quota, String client) {
+        if (!limiter.isEnabled() || !StringUtils.hasText(client)) {
+            return Mono.empty();
+        }
+        return redis.execute(RateLimiter.TOKEN_BUCKET_SCRIPT, limiter.keys(quota, client), List.of(limiter.args(quota)))
+                .next()
+                .doOnNext(result -> limiter.check(quota, client, (List<Long>) result))
+                .then();
+    }
+
+    Mono<String> getClient(ServerWebExchange exchange) {
+        // No key is set when rate limiting is disabled: see RateLimiter.getClient().
+        if (!limiter.isEnabled()) {
+            return Mono.just("");
+        }
+        if (limiter.getClientKey() == RateLimitConfig.ClientKey.SESSION) {
+            return exchange.getSession().map(session -> {
+                // Make sure the session is saved, so that the next requests get the same one.
+                session.start();
+                return "session::" + session.getId();
+            });
+        }
+        final var address = exchange.getRequest().getRemoteAddress();
+        return Mono.just("ip::" + (address != null ? address.getAddress().getHostAddress() : "unknown"));
+    }
+}
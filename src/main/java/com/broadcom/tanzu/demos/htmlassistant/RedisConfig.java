@@ -16,15 +16,40 @@
 
 package com.broadcom.tanzu.demos.htmlassistant;
 
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.ReactiveRedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisConnection;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.ReactiveRedisTemplate;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.RedisSerializer;
 
 @Configuration(proxyBeanMethods = false)
 class RedisConfig {
     @Bean
     StringRedisTemplate redisTemplate(RedisConnectionFactory redisConnectionFactory) {
-        return new StringRedisTemplate(redisConnectionFactory);
+        return new StringRedisTemplate(redisConnectionFactory) {
+            @Override
+            protected RedisConnection preProcessConnection(RedisConnection connection, boolean existingConnection) {
+                // Every template operation (including scripts and pipelines) is a single round trip.
+                RedisMetricsFilter.countRoundTrip();
+                return connection;
+            }
+        };
+    }
+
+    @Bean
+    @ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+    ReactiveRedisTemplate<String, byte[]> reactiveBinaryRedisTemplate(ReactiveRedisConnectionFactory redisConnectionFactory) {
+        // Content sources are stored compressed: values are read as raw bytes.
+        final var context = RedisSerializationContext.<String, byte[]>newSerializationContext(RedisSerializer.string())
+                .value(RedisSerializer.byteArray())
+                .hashKey(RedisSerializer.string())
+                .hashValue(RedisSerializer.byteArray())
+                .build();
+        return new ReactiveRedisTemplate<>(redisConnectionFactory, context);
     }
 }
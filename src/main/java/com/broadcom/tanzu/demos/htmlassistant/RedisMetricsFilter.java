@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+class RedisMetricsFilter extends OncePerRequestFilter {
+    private static final String ROUND_TRIPS_ATTRIBUTE = RedisMetricsFilter.class.getName() + ".roundTrips";
+    private final MeterRegistry meterRegistry;
+
+    RedisMetricsFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    static void countRoundTrip() {
+        // Only Redis operations run while handling a request are counted:
+        // contents generated in the background are not bound to any request.
+        final var attrs = RequestContextHolder.getRequestAttributes();
+        if (attrs == null) {
+            return;
+        }
+        var roundTrips = (AtomicInteger) attrs.getAttribute(ROUND_TRIPS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (roundTrips == null) {
+            roundTrips = new AtomicInteger();
+            attrs.setAttribute(ROUND_TRIPS_ATTRIBUTE, roundTrips, RequestAttributes.SCOPE_REQUEST);
+        }
+        roundTrips.incrementAndGet();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            // Only requests handled by a controller are recorded (static resources don't use Redis).
+            final var handler = request.getAttribute(HandlerMapping.BEST_MATCHING_HANDLER_ATTRIBUTE);
+            final var pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            if (handler instanceof HandlerMethod && pattern != null) {
+                final var roundTrips = (AtomicInteger) request.getAttribute(ROUND_TRIPS_ATTRIBUTE);
+                DistributionSummary.builder("content.redis.round.trips").tag("uri", pattern.toString())
+                        .description("Redis round trips per request")
+                        .register(meterRegistry).record(roundTrips != null ? roundTrips.get() : 0);
+            }
+        }
+    }
+}
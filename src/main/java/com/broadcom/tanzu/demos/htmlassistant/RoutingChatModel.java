@@ -0,0 +1,197 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+class RoutingChatModel implements ChatModel {
+    // Latencies are tracked over the last requests sent to each provider.
+    private static final int LATENCY_SAMPLES = 100;
+    private static final int MIN_LATENCY_SAMPLES = 10;
+
+    private final Logger logger = LoggerFactory.getLogger(RoutingChatModel.class);
+    private final RoutingConfig config;
+    private final List<Provider> providers;
+    private final MeterRegistry meterRegistry;
+    private final Scheduler scheduler = Schedulers.fromExecutorService(
+            Executors.newVirtualThreadPerTaskExecutor(), "chat-routing");
+
+    RoutingChatModel(RoutingConfig config, Map<String, ChatModel> chatModels, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.meterRegistry = meterRegistry;
+        this.providers = chatModels.entrySet().stream()
+                .map(e -> new Provider(e.getKey(), e.getValue())).toList();
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        return route(model -> Mono.fromCallable(() -> model.call(prompt)).subscribeOn(scheduler).flux())
+                .blockLast();
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return route(model -> model.stream(prompt));
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        // Let each provider use its own default options.
+        return null;
+    }
+
+    private Flux<ChatResponse> route(Function<ChatModel, Flux<ChatResponse>> request) {
+        return Flux.defer(() -> {
+            // Providers failing repeatedly are skipped, unless no other provider is available.
+            final var candidates = new ArrayList<Provider>(providers.size());
+            for (final var provider : providers) {
+                if (provider.isAvailable()) {
+                    candidates.add(provider);
+                }
+            }
+            return send(candidates.isEmpty() ? providers : candidates, 0, request);
+        });
+    }
+
+    private Flux<ChatResponse> send(List<Provider> candidates, int index, Function<ChatModel, Flux<ChatResponse>> request) {
+        final var provider = candidates.get(index);
+        final var response = provider.send(request);
+        if (index + 1 == candidates.size()) {
+            return response;
+        }
+
+        // Should this provider be slower than usual (or fail), the next one is called:
+        // the first provider to send a response is used, and the other one is cancelled.
+        final var failed = Sinks.<Void>empty();
+        final var hedgeDelay = provider.getHedgeDelay();
+        final var next = Mono.firstWithSignal(Mono.delay(hedgeDelay).thenReturn(true), failed.asMono().thenReturn(false))
+                .flatMapMany(hedged -> {
+                    if (hedged) {
+                        logger.atInfo().log("No response from AI provider {} after {} ms, sending request to {}",
+                                provider.name, hedgeDelay.toMillis(), candidates.get(index + 1).name);
+                    } else {
+                        logger.atInfo().log("Falling back to AI provider {}", candidates.get(index + 1).name);
+                    }
+                    return send(candidates, index + 1, request);
+                });
+        return Flux.firstWithValue(response.doOnError(e -> failed.tryEmitEmpty()), next);
+    }
+
+    @PreDestroy
+    void dispose() {
+        scheduler.dispose();
+    }
+
+    private class Provider {
+        private final String name;
+        private final ChatModel chatModel;
+        private final long[] latencies = new long[LATENCY_SAMPLES];
+        private final Timer latencyTimer;
+        private int latencyCount;
+        private int failures;
+        private long openUntil = System.nanoTime();
+
+        Provider(String name, ChatModel chatModel) {
+            this.name = name;
+            this.chatModel = chatModel;
+            this.latencyTimer = Timer.builder("content.provider.latency").tag("provider", name)
+                    .description("Time to get the first response from an AI provider").register(meterRegistry);
+        }
+
+        Flux<ChatResponse> send(Function<ChatModel, Flux<ChatResponse>> request) {
+            return Flux.defer(() -> {
+                final var start = System.nanoTime();
+                final var firstResponse = new boolean[1];
+                return request.apply(chatModel)
+                        .doOnNext(r -> {
+                            if (!firstResponse[0]) {
+                                firstResponse[0] = true;
+                                recordLatency(System.nanoTime() - start);
+                            }
+                        })
+                        .doOnError(e -> logger.atWarn().log("AI provider {} failed: {}", name, e.getMessage()))
+                        .doFinally(signal -> recordResult(signal));
+            });
+        }
+
+        synchronized boolean isAvailable() {
+            return System.nanoTime() - openUntil >= 0;
+        }
+
+        synchronized Duration getHedgeDelay() {
+            // Wait until this provider is slower than most of its previous requests.
+            if (latencyCount < MIN_LATENCY_SAMPLES) {
+                return config.hedgeDelay();
+            }
+            final var samples = Arrays.copyOf(latencies, Math.min(latencyCount, LATENCY_SAMPLES));
+            Arrays.sort(samples);
+            final var index = (int) Math.ceil(config.hedgePercentile() * samples.length) - 1;
+            final var delay = Duration.ofNanos(samples[Math.max(0, Math.min(samples.length - 1, index))]);
+            return delay.compareTo(config.minHedgeDelay()) < 0 ? config.minHedgeDelay() : delay;
+        }
+
+        private synchronized void recordLatency(long nanos) {
+            latencies[latencyCount++ % LATENCY_SAMPLES] = nanos;
+            latencyTimer.record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        private void recordResult(SignalType signal) {
+            final var result = switch (signal) {
+                case ON_COMPLETE -> "success";
+                case ON_ERROR -> "error";
+                default -> "cancelled";
+            };
+            Counter.builder("content.provider.requests").tag("provider", name).tag("result", result)
+                    .description("Requests sent to an AI provider").register(meterRegistry).increment();
+            synchronized (this) {
+                if (signal == SignalType.ON_COMPLETE) {
+                    failures = 0;
+                } else if (signal == SignalType.ON_ERROR && ++failures >= config.circuitBreakerFailures()) {
+                    // Stop sending requests to this provider for a while: once this delay is over,
+                    // a single failure is enough to disable this provider again.
+                    logger.atWarn().log("Disabling AI provider {} for {}", name, config.circuitBreakerDelay());
+                    failures = config.circuitBreakerFailures() - 1;
+                    openUntil = System.nanoTime() + config.circuitBreakerDelay().toNanos();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+// Entries are appended to memory-mapped segment files, which are never updated in place:
+// an in-memory index (rebuilt from segment files on startup) tells where the latest version
+// of each entry is. Segments holding too few live entries are compacted into the active segment.
+//
+// Each record is laid out as:
+//   int length, int checksum, short key length, key, long expiration (epoch millis, 0 for none),
+//   int field count, then for each field: int name length, name, int value length, value.
+// A record without any field is a tombstone, and a zero length marks the end of a segment.
+class SegmentStore {
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d+)\\.dat");
+    private static final int HEADER_LENGTH = 8;
+
+    record Entry(Map<String, byte[]> fields, long expiration) {
+    }
+
+    private static final class Segment {
+        private final int id;
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        // Keys removed while this segment was active: older segments may still hold records for these keys.
+        private final Set<String> tombstones = new HashSet<>();
+        private int position;
+        private long liveBytes;
+
+        private Segment(int id, Path path, MappedByteBuffer buffer) {
+            this.id = id;
+            this.path = path;
+            this.buffer = buffer;
+        }
+    }
+
+    private record Location(Segment segment, int offset, int length, long expiration) {
+    }
+
+    private final Logger logger = LoggerFactory.getLogger(SegmentStore.class);
+    private final Path directory;
+    private final int segmentSize;
+    private final Map<String, Location> index = new ConcurrentHashMap<>();
+    private final List<Segment> segments = new ArrayList<>();
+    private Segment activeSegment;
+
+    SegmentStore(Path directory, int segmentSize) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        try {
+            Files.createDirectories(directory);
+            try (final var files = Files.list(directory)) {
+                final var ids = files.map(f -> SEGMENT_FILE.matcher(f.getFileName().toString()))
+                        .filter(m -> m.matches()).map(m -> Integer.parseInt(m.group(1))).sorted().toList();
+                for (final var id : ids) {
+                    load(id);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open segment store: " + directory, e);
+        }
+        logger.atInfo().log("Loaded {} entries from {} segments in {}", index.size(), segments.size(), directory);
+    }
+
+    Entry get(String key) {
+        final var location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+        if (location.expiration() != 0 && location.expiration() <= System.currentTimeMillis()) {
+            return null;
+        }
+        // Records are never updated once written: reads don't need any lock.
+        final var record = location.segment().buffer.slice(location.offset() + HEADER_LENGTH, location.length() - HEADER_LENGTH);
+        record.position(Short.BYTES + record.getShort() + Long.BYTES);
+        final var fieldCount = record.getInt();
+        final var fields = new LinkedHashMap<String, byte[]>(fieldCount * 2);
+        for (var i = 0; i < fieldCount; i++) {
+            final var name = new byte[record.getInt()];
+            record.get(name);
+            final var value = new byte[record.getInt()];
+            record.get(value);
+            fields.put(new String(name, StandardCharsets.UTF_8), value);
+        }
+        return new Entry(fields, location.expiration());
+    }
+
+    boolean contains(String key) {
+        return index.containsKey(key);
+    }
+
+    synchronized void put(String key, Map<String, byte[]> fields, long expiration) {
+        final var keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        var length = HEADER_LENGTH + Short.BYTES + keyBytes.length + Long.BYTES + Integer.BYTES;
+        final var names = new ArrayList<byte[]>(fields.size());
+        for (final var field : fields.entrySet()) {
+            names.add(field.getKey().getBytes(StandardCharsets.UTF_8));
+            length += Integer.BYTES * 2 + names.getLast().length + field.getValue().length;
+        }
+        final var record = ByteBuffer.allocate(length);
+        record.putInt(length - HEADER_LENGTH).putInt(0)
+                .putShort((short) keyBytes.length).put(keyBytes).putLong(expiration).putInt(fields.size());
+        var i = 0;
+        for (final var value : fields.values()) {
+            record.putInt(names.get(i).length).put(names.get(i++)).putInt(value.length).put(value);
+        }
+        final var crc = new CRC32();
+        crc.update(record.array(), HEADER_LENGTH, length - HEADER_LENGTH);
+        record.putInt(Integer.BYTES, (int) crc.getValue());
+
+        final var location = append(record.array(), expiration);
+        if (fields.isEmpty()) {
+            // Tombstones are only used when loading segments.
+            location.segment().liveBytes -= location.length();
+            location.segment().tombstones.add(key);
+            release(index.remove(key));
+        } else {
+            release(index.put(key, location));
+        }
+    }
+
+    void remove(String key) {
+        if (index.containsKey(key)) {
+            put(key, Map.of(), 0);
+        }
+    }
+
+    synchronized void flush() {
+        if (activeSegment != null) {
+            activeSegment.buffer.force();
+        }
+    }
+
+    synchronized void compact(double threshold) {
+        // Expired entries are dropped first, then segments with too few live entries are rewritten.
+        final var now = System.currentTimeMillis();
+        index.entrySet().removeIf(e -> {
+            final var expired = e.getValue().expiration() != 0 && e.getValue().expiration() <= now;
+            if (expired) {
+                e.getValue().segment().liveBytes -= e.getValue().length();
+            }
+            return expired;
+        });
+
+        for (final var segment : List.copyOf(segments)) {
+            if (segment == activeSegment || (segment.liveBytes > 0 && segment.liveBytes >= segment.position * threshold)) {
+                continue;
+            }
+            if (segment.liveBytes > 0) {
+                logger.atDebug().log("Compacting segment {}: {} live bytes out of {}", segment.id, segment.liveBytes, segment.position);
+                for (final var e : index.entrySet()) {
+                    final var location = e.getValue();
+                    if (location.segment() == segment) {
+                        final var record = new byte[location.length()];
+                        segment.buffer.get(location.offset(), record);
+                        index.put(e.getKey(), append(record, location.expiration()));
+                    }
+                }
+            }
+            // Tombstones must outlive the records these are shadowing: tombstones are moved to the active segment
+            // while an older segment still exists, unless the key was written again in the meantime.
+            if (segments.getFirst() != segment) {
+                for (final var key : segment.tombstones) {
+                    if (!index.containsKey(key)) {
+                        put(key, Map.of(), 0);
+                    }
+                }
+            }
+            if (segment.liveBytes > 0 || !segment.tombstones.isEmpty()) {
+                flush();
+            }
+            // The file is deleted right away, while readers may still use its mapping.
+            segments.remove(segment);
+            try {
+                Files.deleteIfExists(segment.path);
+            } catch (IOException e) {
+                logger.atWarn().log("Failed to delete segment: {}", segment.path, e);
+            }
+            logger.atInfo().log("Removed segment {}", segment.path);
+        }
+    }
+
+    int size() {
+        return index.size();
+    }
+
+    synchronized long diskSize() {
+        return segments.stream().mapToLong(s -> s.buffer.capacity()).sum();
+    }
+
+    private Location append(byte[] record, long expiration) {
+        if (activeSegment == null || activeSegment.position + record.length + HEADER_LENGTH > activeSegment.buffer.capacity()) {
+            // Some room is always left for the end marker.
+            if (activeSegment != null) {
+                activeSegment.buffer.force();
+            }
+            final var id = segments.isEmpty() ? 1 : segments.getLast().id + 1;
+            activeSegment = map(id, Math.max(segmentSize, record.length + HEADER_LENGTH));
+            segments.add(activeSegment);
+        }
+        final var offset = activeSegment.position;
+        activeSegment.buffer.put(offset, record);
+        activeSegment.position += record.length;
+        activeSegment.liveBytes += record.length;
+        return new Location(activeSegment, offset, record.length, expiration);
+    }
+
+    private void release(Location location) {
+        if (location != null) {
+            location.segment().liveBytes -= location.length();
+        }
+    }
+
+    private Segment map(int id, int size) {
+        final var path = directory.resolve("segment-%08d.dat".formatted(id));
+        // Mappings stay valid once the channel is closed.
+        try (final var channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return new Segment(id, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(size, channel.size())));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to map segment: " + path, e);
+        }
+    }
+
+    private void load(int id) {
+        final var segment = map(id, 0);
+        final var buffer = segment.buffer;
+        final var crc = new CRC32();
+        var offset = 0;
+        while (offset + HEADER_LENGTH <= buffer.capacity()) {
+            final var length = buffer.getInt(offset);
+            if (length <= 0 || offset + HEADER_LENGTH + length > buffer.capacity()) {
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.slice(offset + HEADER_LENGTH, length));
+            if ((int) crc.getValue() != buffer.getInt(offset + Integer.BYTES)) {
+                // This record was not fully written: the next records are appended over it.
+                logger.atWarn().log("Ignoring corrupted record in segment {} at offset {}", segment.path, offset);
+                break;
+            }
+            final var keyLength = buffer.getShort(offset + HEADER_LENGTH);
+            final var key = new byte[keyLength];
+            buffer.get(offset + HEADER_LENGTH + Short.BYTES, key);
+            final var expiration = buffer.getLong(offset + HEADER_LENGTH + Short.BYTES + keyLength);
+            final var fieldCount = buffer.getInt(offset + HEADER_LENGTH + Short.BYTES + keyLength + Long.BYTES);
+
+            final var location = new Location(segment, offset, HEADER_LENGTH + length, expiration);
+            if (fieldCount == 0) {
+                segment.tombstones.add(new String(key, StandardCharsets.UTF_8));
+                release(index.remove(new String(key, StandardCharsets.UTF_8)));
+            } else {
+                segment.liveBytes += location.length();
+                release(index.put(new String(key, StandardCharsets.UTF_8), location));
+            }
+            offset += location.length();
+        }
+        segment.position = offset;
+        segments.add(segment);
+        activeSegment = segment;
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+class TokenEstimator {
+    private TokenEstimator() {
+    }
+
+    static int estimate(CharSequence text) {
+        // Most AI models use BPE tokenizers, splitting words into sub-words of about 4 characters,
+        // while punctuation marks (very common in HTML, CSS and Javascript) are usually tokens of their own.
+        // This estimate is close enough to stay within a budget, without depending on a model tokenizer.
+        if (text == null) {
+            return 0;
+        }
+        var tokens = 0;
+        var word = 0;
+        for (int i = 0, len = text.length(); i < len; ++i) {
+            final var c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                ++word;
+                continue;
+            }
+            tokens += (word + 3) / 4;
+            word = 0;
+            if (!Character.isWhitespace(c)) {
+                ++tokens;
+            }
+        }
+        return tokens + (word + 3) / 4;
+    }
+}
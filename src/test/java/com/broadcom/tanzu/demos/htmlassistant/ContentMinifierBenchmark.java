@@ -0,0 +1,95 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContentMinifierBenchmark {
+    private static final Pattern HTML_COMMENT = Pattern.compile("<!--(?!\\[if).*?-->", Pattern.DOTALL);
+    private static final Pattern INDENTATION = Pattern.compile("(?m)^[ \\t]+|[ \\t]+$");
+    private static final Pattern BLANK_LINES = Pattern.compile("\\n{2,}");
+
+    @Param({"/sanitizer/plain-html.txt", "/minifier/portfolio.html", "/minifier/dashboard.html"})
+    public String sample;
+
+    private String content;
+
+    @Setup
+    public void setup() throws IOException {
+        try (final var in = Objects.requireNonNull(getClass().getResourceAsStream(sample))) {
+            content = ContentSanitizer.sanitize(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+        final var minified = ContentMinifier.minify(content);
+        if (!ContentMinifier.minify(minified).equals(minified)) {
+            throw new IllegalStateException("Minifying a minified content should not change it: " + sample);
+        }
+
+        // Report what is saved in Redis, in responses and in the next prompts.
+        System.out.printf("%n%s: %d -> %d characters (-%d%%), %d -> %d gzip bytes (-%d%%), %d -> %d tokens (-%d%%)%n",
+                sample, content.length(), minified.length(), savings(content.length(), minified.length()),
+                ContentStore.compress(content).length, ContentStore.compress(minified).length,
+                savings(ContentStore.compress(content).length, ContentStore.compress(minified).length),
+                TokenEstimator.estimate(content), TokenEstimator.estimate(minified),
+                savings(TokenEstimator.estimate(content), TokenEstimator.estimate(minified)));
+    }
+
+    private static long savings(int before, int after) {
+        return Math.round(100.0 * (before - after) / before);
+    }
+
+    @Benchmark
+    public String regex() {
+        return regexMinify(content);
+    }
+
+    @Benchmark
+    public String singlePass() {
+        return ContentMinifier.minify(content);
+    }
+
+    @Benchmark
+    public byte[] singlePassAndCompress() {
+        // Minified contents are compressed before being stored: part of the minification cost
+        // is paid back by compressing a smaller content.
+        return ContentStore.compress(ContentMinifier.minify(content));
+    }
+
+    @Benchmark
+    public byte[] compressOnly() {
+        return ContentStore.compress(content);
+    }
+
+    private static String regexMinify(String content) {
+        // This is the previous implementation (only used to fit the prompt token budget), used as a baseline:
+        // whitespaces in preformatted texts and template literals are not preserved.
+        var newContent = HTML_COMMENT.matcher(content).replaceAll("");
+        newContent = INDENTATION.matcher(newContent).replaceAll("");
+        return BLANK_LINES.matcher(newContent).replaceAll("\n");
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContentMinifierTest {
+    @Test
+    void removesCommentsAndIndentation() {
+        final var content = """
+                <html>
+                  <!-- Page header -->
+                  <body>
+                    <h1>Title</h1>
+                  </body>
+                </html>
+                """;
+        assertThat(ContentMinifier.minify(content)).isEqualTo("<html>\n<body>\n<h1>Title</h1>\n</body>\n</html>");
+    }
+
+    @Test
+    void keepsPreformattedTexts() {
+        final var content = "<pre>\n  indented\n    code\n</pre>";
+        assertThat(ContentMinifier.minify(content)).isEqualTo(content);
+    }
+
+    @Test
+    void removesScriptComments() {
+        final var script = """
+                // Counter
+                let count = 0; /* initial value */
+                const url = "https://example.com"; // home page
+                """;
+        assertThat(ContentMinifier.minifyScript(script))
+                .isEqualTo("let count = 0;\nconst url = \"https://example.com\";\n");
+    }
+
+    @Test
+    void keepsRegularExpressions() {
+        final var script = """
+                const re = /\\/\\/ not a comment/g;
+                if (/[/]/.test(s)) { return /a"b/i.exec(s); }
+                """;
+        assertThat(ContentMinifier.minifyScript(script)).isEqualTo(script);
+    }
+
+    @Test
+    void readsDivisionAfterPostfixOperator() {
+        final var script = "total = count-- / 2; link = \"a/b\"; url = \"https://x.io\";\n";
+        assertThat(ContentMinifier.minifyScript(script)).isEqualTo(script);
+        final var other = "total = count++ / 2; link = \"a/b\"; url = \"https://x.io\";\n";
+        assertThat(ContentMinifier.minifyScript(other)).isEqualTo(other);
+    }
+
+    @Test
+    void readsDivisionAfterValue() {
+        final var script = """
+                a = (b + c) / 2; d = e[0] / 2; f = g / 2; h = 10 / 2; u = "https://x.io";
+                """;
+        assertThat(ContentMinifier.minifyScript(script)).isEqualTo(script);
+    }
+
+    @Test
+    void keepsScriptWhichCannotBeTokenized() {
+        // This slash is read as the start of a regular expression, which doesn't end as expected.
+        final var script = """
+                x = a + / 2; link = "a/b"; // comment
+                url = "https://x.io";
+                """;
+        assertThat(ContentMinifier.minifyScript(script)).isEqualTo(script);
+    }
+
+    @Test
+    void minifiesScriptElements() {
+        final var content = """
+                <script>
+                  total = count-- / 2; link = "a/b"; url = "https://x.io";
+                </script>
+                """;
+        assertThat(ContentMinifier.minify(content))
+                .isEqualTo("<script>total = count-- / 2; link = \"a/b\"; url = \"https://x.io\";\n</script>");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"/minifier/portfolio.html", "/minifier/dashboard.html"})
+    void minifiesSamples(String sample) throws IOException {
+        final String content;
+        try (final var in = Objects.requireNonNull(getClass().getResourceAsStream(sample))) {
+            content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        final var minified = ContentMinifier.minify(content);
+        assertThat(minified).hasSizeLessThan(content.length());
+        assertThat(ContentMinifier.minify(minified)).isEqualTo(minified);
+    }
+}
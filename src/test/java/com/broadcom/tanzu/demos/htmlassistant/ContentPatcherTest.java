@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContentPatcherTest {
+    private static final String SOURCE = """
+            <ul>
+              <li>Item</li>
+              <li>Item</li>
+            </ul>
+            <p>Footer</p>""";
+
+    @Test
+    void appliesBlockMatchingOnce() {
+        final var patch = """
+                <<<<<<< SEARCH
+                <p>Footer</p>
+                =======
+                <p>New footer</p>
+                >>>>>>> REPLACE
+                """;
+        assertThat(ContentPatcher.apply(SOURCE, patch)).endsWith("<p>New footer</p>");
+    }
+
+    @Test
+    void appliesBlockIgnoringIndentation() {
+        final var patch = """
+                <<<<<<< SEARCH
+                <ul>
+                <li>Item</li>
+                <li>Item</li>
+                =======
+                <ol>
+                >>>>>>> REPLACE
+                """;
+        assertThat(ContentPatcher.apply(SOURCE, patch)).startsWith("<ol>\n</ul>");
+    }
+
+    @Test
+    void rejectsBlockMatchingSeveralLocations() {
+        final var patch = """
+                <<<<<<< SEARCH
+                  <li>Item</li>
+                =======
+                  <li>First item</li>
+                >>>>>>> REPLACE
+                """;
+        assertThat(ContentPatcher.apply(SOURCE, patch)).isNull();
+    }
+
+    @Test
+    void rejectsBlockNotFound() {
+        final var patch = """
+                <<<<<<< SEARCH
+                <p>Header</p>
+                =======
+                <p>New header</p>
+                >>>>>>> REPLACE
+                """;
+        assertThat(ContentPatcher.apply(SOURCE, patch)).isNull();
+    }
+}
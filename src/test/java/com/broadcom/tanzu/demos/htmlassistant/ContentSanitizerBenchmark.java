@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContentSanitizerBenchmark {
+    // Streamed outputs are received as small chunks, usually a few tokens long.
+    private static final int CHUNK_SIZE = 16;
+
+    @Param({"deepseek-reasoning.txt", "markdown-fence.txt", "plain-html.txt"})
+    public String sample;
+
+    private String content;
+    private List<String> chunks;
+
+    @Setup
+    public void setup() throws IOException {
+        try (final var in = Objects.requireNonNull(getClass().getResourceAsStream("/sanitizer/" + sample))) {
+            content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        chunks = new ArrayList<>(content.length() / CHUNK_SIZE + 1);
+        for (var i = 0; i < content.length(); i += CHUNK_SIZE) {
+            chunks.add(content.substring(i, Math.min(content.length(), i + CHUNK_SIZE)));
+        }
+        if (!ContentSanitizer.sanitize(content).equals(regexSanitize(content))) {
+            throw new IllegalStateException("Sanitizers don't give the same result for sample: " + sample);
+        }
+    }
+
+    @Benchmark
+    public String regex() {
+        return regexSanitize(content);
+    }
+
+    @Benchmark
+    public String singlePass() {
+        return ContentSanitizer.sanitize(content);
+    }
+
+    @Benchmark
+    public void singlePassStreaming(Blackhole bh) {
+        final var sanitizer = new ContentSanitizer();
+        for (final var chunk : chunks) {
+            bh.consume(sanitizer.push(chunk));
+        }
+        bh.consume(sanitizer.finish());
+    }
+
+    private static String regexSanitize(String content) {
+        // This is the previous implementation, used as a baseline.
+        return content.replaceAll("[\\s\\S]*?</think>", "")
+                .replaceAll("^```html", "")
+                .replaceAll("```$", "")
+                .trim();
+    }
+}
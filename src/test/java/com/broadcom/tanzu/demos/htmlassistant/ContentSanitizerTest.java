@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContentSanitizerTest {
+    // Streamed outputs are split at any position: a tag or a fence may span several chunks.
+    private static final List<Integer> CHUNK_SIZES = List.of(1, 2, 3, 7, 16, 64);
+
+    @ParameterizedTest
+    @ValueSource(strings = {"deepseek-reasoning.txt", "markdown-fence.txt", "plain-html.txt"})
+    void sanitizesSamplesLikeRegex(String sample) throws IOException {
+        final String content;
+        try (final var in = Objects.requireNonNull(getClass().getResourceAsStream("/sanitizer/" + sample))) {
+            content = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+        final var sanitized = ContentSanitizer.sanitize(content);
+        assertThat(sanitized).isEqualTo(regexSanitize(content));
+        for (final var chunkSize : CHUNK_SIZES) {
+            assertThat(sanitizeChunks(content, chunkSize)).as("chunks of %d characters", chunkSize).isEqualTo(sanitized);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "<think>Let me think.</think>\n<html></html>",
+            "Reasoning without an opening tag.</think><html></html>",
+            "```html\n<html></html>\n```\n",
+            "<html><pre>``` not a fence</pre></html>",
+            "<html></html>",
+    })
+    void sanitizesLikeRegex(String content) {
+        final var sanitized = ContentSanitizer.sanitize(content);
+        assertThat(sanitized).isEqualTo(regexSanitize(content));
+        for (final var chunkSize : CHUNK_SIZES) {
+            assertThat(sanitizeChunks(content, chunkSize)).as("chunks of %d characters", chunkSize).isEqualTo(sanitized);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "\n  ```html\n<html></html>\n```",
+            "<think>Done.</think>\n\n```html\n<html></html>\n```",
+    })
+    void removesFenceAfterLeadingWhitespaces(String content) {
+        // The previous regex only removed a fence found at the very beginning of the content.
+        assertThat(ContentSanitizer.sanitize(content)).isEqualTo("<html></html>");
+        for (final var chunkSize : CHUNK_SIZES) {
+            assertThat(sanitizeChunks(content, chunkSize)).as("chunks of %d characters", chunkSize)
+                    .isEqualTo("<html></html>");
+        }
+    }
+
+    private static String sanitizeChunks(String content, int chunkSize) {
+        final var sanitizer = new ContentSanitizer();
+        final var out = new StringBuilder(content.length());
+        for (var i = 0; i < content.length(); i += chunkSize) {
+            out.append(sanitizer.push(content.substring(i, Math.min(content.length(), i + chunkSize))));
+        }
+        return out.append(sanitizer.finish()).toString();
+    }
+
+    private static String regexSanitize(String content) {
+        // This is the previous implementation.
+        return content.replaceAll("[\\s\\S]*?</think>", "")
+                .replaceAll("^```html", "")
+                .replaceAll("```$", "")
+                .trim();
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GenerationSchedulerTest {
+    private final GenerationScheduler scheduler = new GenerationScheduler(new ContentConfig(
+            "model", "prompt", true, false, 0, true, true, true, true, true,
+            Duration.ofSeconds(30), Duration.ZERO, 1, 10, Duration.ofSeconds(1),
+            Duration.ZERO, false, false, 1, null));
+
+    @AfterEach
+    void dispose() {
+        scheduler.dispose();
+    }
+
+    @Test
+    void keepsSlotWhenPendingGenerationIsCancelled() {
+        final var first = Sinks.<String>empty();
+        final var firstGeneration = scheduler.schedule("first", first.asMono().flux()).subscribe();
+        scheduler.schedule("cancelled", Flux.just("cancelled")).subscribe().dispose();
+
+        // The first generation still holds the only slot.
+        final var started = new AtomicBoolean();
+        final var done = new CountDownLatch(1);
+        scheduler.schedule("next", Flux.defer(() -> {
+            started.set(true);
+            return Flux.just("next");
+        })).subscribe(null, null, done::countDown);
+        assertThat(started).isFalse();
+
+        first.tryEmitEmpty();
+        assertThat(await(done)).isTrue();
+        firstGeneration.dispose();
+    }
+
+    @Test
+    void keepsSlotWhenHandedOverToCancelledGeneration() {
+        for (var i = 0; i < 500; i++) {
+            final var first = Sinks.<String>empty();
+            scheduler.schedule("first", first.asMono().flux()).subscribe();
+            final var pending = scheduler.schedule("pending", Flux.just("pending")).subscribe();
+
+            // The slot of the first generation is freed while the pending generation is being cancelled.
+            final var ready = new CountDownLatch(1);
+            Schedulers.boundedElastic().schedule(() -> {
+                ready.countDown();
+                first.tryEmitEmpty();
+            });
+            await(ready);
+            pending.dispose();
+
+            // Whatever the outcome, a slot must be available for the next generation.
+            final var done = new CountDownLatch(1);
+            scheduler.schedule("next", Flux.just("next")).subscribe(null, null, done::countDown);
+            assertThat(await(done)).as("slot available after iteration %d", i).isTrue();
+        }
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
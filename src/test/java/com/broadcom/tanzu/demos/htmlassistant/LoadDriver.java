@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.lettuce.core.RedisClient;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Load driver submitting prompts then reading generated contents, just like a browser would do.
+// Usage: LoadDriver [url=http://localhost:8080] [management-url=http://localhost:8081]
+//                   [redis-url=redis://localhost:6379] [concurrency=16] [requests=200]
+// Run this driver against an app connected to the OpenAI stub server (see OpenAiStubServer).
+public class LoadDriver {
+    private static final Duration HEAP_SAMPLING_INTERVAL = Duration.ofMillis(500);
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final String url;
+    private final String managementUrl;
+
+    LoadDriver(String url, String managementUrl) {
+        this.url = url;
+        this.managementUrl = managementUrl;
+    }
+
+    private record Sample(long submitNanos, long firstByteNanos, long totalNanos) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final var params = new HashMap<String, String>();
+        for (final var arg : args) {
+            final var i = arg.indexOf('=');
+            params.put(arg.substring(0, i), arg.substring(i + 1));
+        }
+        final var driver = new LoadDriver(params.getOrDefault("url", "http://localhost:8080"),
+                params.getOrDefault("management-url", "http://localhost:8081"));
+        final var concurrency = Integer.parseInt(params.getOrDefault("concurrency", "16"));
+        final var requests = Integer.parseInt(params.getOrDefault("requests", "200"));
+
+        final var redisClient = RedisClient.create(params.getOrDefault("redis-url", "redis://localhost:6379"));
+        try (final var redis = redisClient.connect()) {
+            final var redisOpsBefore = getRedisCommands(redis.sync().info("stats"));
+            driver.run(concurrency, requests, () -> getRedisCommands(redis.sync().info("stats")) - redisOpsBefore);
+        } finally {
+            redisClient.shutdown();
+        }
+    }
+
+    private void run(int concurrency, int requests, LongSupplier redisCommands) throws Exception {
+        System.out.printf("Running %d requests with %d concurrent users against %s%n", requests, concurrency, url);
+        final var samples = Collections.synchronizedList(new ArrayList<Sample>(requests));
+        final var errors = new AtomicInteger();
+        final var next = new AtomicInteger();
+        final var maxHeap = new AtomicLong();
+        final var heapBefore = getHeapUsed();
+
+        // Sample heap usage while the app is under load.
+        final var heapSampler = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().factory());
+        heapSampler.scheduleAtFixedRate(() -> maxHeap.accumulateAndGet(getHeapUsed(), Math::max),
+                0, HEAP_SAMPLING_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+
+        final var start = System.nanoTime();
+        try (final var users = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (var u = 0; u < concurrency; ++u) {
+                users.submit(() -> {
+                    for (var i = next.getAndIncrement(); i < requests; i = next.getAndIncrement()) {
+                        try {
+                            samples.add(generatePage(i));
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                            System.err.printf("Request %d failed: %s%n", i, e);
+                        }
+                    }
+                });
+            }
+        }
+        final var elapsed = System.nanoTime() - start;
+        heapSampler.shutdownNow();
+        final var redisOps = redisCommands.getAsLong() - 1;
+
+        final var completed = samples.size();
+        System.out.printf("%nCompleted: %d, errors: %d, elapsed: %.1fs%n", completed, errors.get(), elapsed / 1e9);
+        System.out.printf("Throughput: %.2f pages/s%n", completed / (elapsed / 1e9));
+        printLatency("Submit (POST /assistant)", samples.stream().mapToLong(Sample::submitNanos).sorted().toArray());
+        printLatency("Content first byte", samples.stream().mapToLong(Sample::firstByteNanos).sorted().toArray());
+        printLatency("Content complete", samples.stream().mapToLong(Sample::totalNanos).sorted().toArray());
+        System.out.printf("Redis commands: %d (%.1f per page)%n", redisOps, completed > 0 ? (double) redisOps / completed : 0);
+        System.out.printf("Heap used: %d MB before, %d MB max under load, %d MB after%n",
+                heapBefore >> 20, maxHeap.get() >> 20, getHeapUsed() >> 20);
+    }
+
+    private Sample generatePage(int i) throws IOException, InterruptedException {
+        final var start = System.nanoTime();
+        final var prompt = "Generate a website for bakery #" + i + " with a menu and opening hours";
+        final var submit = http.send(HttpRequest.newBuilder(URI.create(url + "/assistant"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString("prompt=" + URLEncoder.encode(prompt, StandardCharsets.UTF_8)))
+                .build(), HttpResponse.BodyHandlers.discarding());
+        final var location = submit.headers().firstValue("Location")
+                .orElseThrow(() -> new IOException("Unexpected response to prompt submission: " + submit.statusCode()));
+        final var contentId = location.substring(location.lastIndexOf('/') + 1);
+        final var submitted = System.nanoTime();
+
+        // Read the content as a stream to measure the time to first byte.
+        final var content = http.send(HttpRequest.newBuilder(URI.create(url + "/content/site-" + contentId))
+                .header("Accept-Encoding", "gzip")
+                .build(), HttpResponse.BodyHandlers.ofInputStream());
+        if (content.statusCode() != 200) {
+            content.body().close();
+            throw new IOException("Unexpected response to content request: " + content.statusCode());
+        }
+        long firstByte = 0;
+        try (final var in = content.body()) {
+            final var buffer = new byte[8192];
+            for (int n; (n = in.read(buffer)) != -1; ) {
+                if (firstByte == 0 && n > 0) {
+                    firstByte = System.nanoTime();
+                }
+            }
+        }
+        final var end = System.nanoTime();
+        return new Sample(submitted - start, (firstByte != 0 ? firstByte : end) - submitted, end - start);
+    }
+
+    private long getHeapUsed() {
+        try {
+            final var resp = http.send(HttpRequest.newBuilder(
+                            URI.create(managementUrl + "/actuator/metrics/jvm.memory.used?tag=area:heap")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            return objectMapper.readTree(resp.body()).path("measurements").path(0).path("value").asLong();
+        } catch (IOException e) {
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    private static long getRedisCommands(String info) {
+        return info.lines()
+                .filter(line -> line.startsWith("total_commands_processed:"))
+                .mapToLong(line -> Long.parseLong(line.substring(line.indexOf(':') + 1).strip()))
+                .findFirst().orElse(0);
+    }
+
+    private static void printLatency(String name, long[] sortedNanos) {
+        if (sortedNanos.length == 0) {
+            return;
+        }
+        System.out.printf("%-26s p50: %7.1f ms, p99: %7.1f ms, max: %7.1f ms%n", name,
+                percentile(sortedNanos, 0.5) / 1e6, percentile(sortedNanos, 0.99) / 1e6,
+                sortedNanos[sortedNanos.length - 1] / 1e6);
+    }
+
+    private static long percentile(long[] sortedValues, double p) {
+        return sortedValues[Math.min(sortedValues.length - 1, (int) Math.ceil(p * sortedValues.length) - 1)];
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Stub server implementing the OpenAI chat completions API, used to load test this app
+// without calling (and paying for) a real AI provider.
+// Usage: OpenAiStubServer [port=9999] [latency=500] [tokens-per-second=200] [error-rate=0] [page=<file>],
+// where latency is the delay in milliseconds before the first token is sent.
+public class OpenAiStubServer {
+    // Most tokenizers use 3 to 4 characters per token for HTML contents.
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicLong requests = new AtomicLong();
+    private final long latencyMillis;
+    private final double tokensPerSecond;
+    private final double errorRate;
+    private final List<String> tokens;
+
+    OpenAiStubServer(long latencyMillis, double tokensPerSecond, double errorRate, String page) {
+        this.latencyMillis = latencyMillis;
+        this.tokensPerSecond = tokensPerSecond;
+        this.errorRate = errorRate;
+        this.tokens = new ArrayList<>(page.length() / CHARS_PER_TOKEN + 1);
+        for (var i = 0; i < page.length(); i += CHARS_PER_TOKEN) {
+            tokens.add(page.substring(i, Math.min(page.length(), i + CHARS_PER_TOKEN)));
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        final var params = new HashMap<String, String>();
+        for (final var arg : args) {
+            final var i = arg.indexOf('=');
+            params.put(arg.substring(0, i), arg.substring(i + 1));
+        }
+        final var port = Integer.parseInt(params.getOrDefault("port", "9999"));
+        final String page;
+        if (params.containsKey("page")) {
+            page = Files.readString(Path.of(params.get("page")));
+        } else {
+            try (final var in = Objects.requireNonNull(OpenAiStubServer.class.getResourceAsStream("/sanitizer/plain-html.txt"))) {
+                page = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
+        }
+        final var stub = new OpenAiStubServer(
+                Long.parseLong(params.getOrDefault("latency", "500")),
+                Double.parseDouble(params.getOrDefault("tokens-per-second", "200")),
+                Double.parseDouble(params.getOrDefault("error-rate", "0")),
+                page);
+
+        final var server = HttpServer.create(new InetSocketAddress(port), 256);
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/v1/chat/completions", stub::handle);
+        server.start();
+        System.out.printf("OpenAI stub server listening on port %d: latency=%dms, tokens-per-second=%.0f, error-rate=%.2f%n",
+                port, stub.latencyMillis, stub.tokensPerSecond, stub.errorRate);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            final var request = objectMapper.readTree(exchange.getRequestBody());
+            final var requestId = requests.incrementAndGet();
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                sendJson(exchange, 503, Map.of("error", Map.of(
+                        "message", "Stub error for request " + requestId, "type", "server_error")));
+                return;
+            }
+            Thread.sleep(latencyMillis);
+            if (request.path("stream").asBoolean(false)) {
+                stream(exchange, request);
+            } else {
+                call(exchange, request);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void call(HttpExchange exchange, JsonNode request) throws IOException, InterruptedException {
+        // Simulate the time needed to generate all tokens.
+        Thread.sleep(tokenDelay().multipliedBy(tokens.size()));
+        final var message = Map.of("role", "assistant", "content", String.join("", tokens));
+        sendJson(exchange, 200, Map.of(
+                "id", "chatcmpl-" + UUID.randomUUID(),
+                "object", "chat.completion",
+                "created", System.currentTimeMillis() / 1000,
+                "model", request.path("model").asText("stub"),
+                "choices", List.of(Map.of("index", 0, "message", message, "finish_reason", "stop")),
+                "usage", usage(request)));
+    }
+
+    private void stream(HttpExchange exchange, JsonNode request) throws IOException, InterruptedException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        final var id = "chatcmpl-" + UUID.randomUUID();
+        final var model = request.path("model").asText("stub");
+        final var out = exchange.getResponseBody();
+        final var delay = tokenDelay();
+        for (final var token : tokens) {
+            sendEvent(out, chunk(id, model, Map.of("role", "assistant", "content", token), null, null));
+            Thread.sleep(delay);
+        }
+        sendEvent(out, chunk(id, model, Map.of(), "stop", usage(request)));
+        out.write("data: [DONE]\n\n".getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private Map<String, Object> chunk(String id, String model, Map<String, Object> delta,
+                                      String finishReason, Map<String, Object> usage) {
+        final var choice = new HashMap<String, Object>();
+        choice.put("index", 0);
+        choice.put("delta", delta);
+        choice.put("finish_reason", finishReason);
+        final var chunk = new HashMap<String, Object>();
+        chunk.put("id", id);
+        chunk.put("object", "chat.completion.chunk");
+        chunk.put("created", System.currentTimeMillis() / 1000);
+        chunk.put("model", model);
+        chunk.put("choices", List.of(choice));
+        if (usage != null) {
+            chunk.put("usage", usage);
+        }
+        return chunk;
+    }
+
+    private Map<String, Object> usage(JsonNode request) {
+        var promptChars = 0;
+        for (final var message : request.path("messages")) {
+            promptChars += message.path("content").asText("").length();
+        }
+        final var promptTokens = promptChars / CHARS_PER_TOKEN + 1;
+        return Map.of("prompt_tokens", promptTokens, "completion_tokens", tokens.size(),
+                "total_tokens", promptTokens + tokens.size());
+    }
+
+    private Duration tokenDelay() {
+        return tokensPerSecond > 0 ? Duration.ofNanos((long) (1_000_000_000 / tokensPerSecond)) : Duration.ZERO;
+    }
+
+    private void sendEvent(OutputStream out, Map<String, Object> data) throws IOException {
+        out.write(("data: " + objectMapper.writeValueAsString(data) + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private void sendJson(HttpExchange exchange, int status, Map<String, Object> body) throws IOException {
+        final var bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+}
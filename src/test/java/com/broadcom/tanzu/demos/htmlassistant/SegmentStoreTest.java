@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SegmentStoreTest {
+    private static final int SEGMENT_SIZE = 300;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reloadsEntries() {
+        final var store = new SegmentStore(directory, SEGMENT_SIZE);
+        store.put("a", fields(100), 0);
+        store.put("b", fields(100), 0);
+        store.put("a", fields(50), 0);
+        store.flush();
+
+        final var reloaded = new SegmentStore(directory, SEGMENT_SIZE);
+        assertThat(reloaded.size()).isEqualTo(2);
+        assertThat(reloaded.get("a").fields().get("v")).hasSize(50);
+        assertThat(reloaded.get("b").fields().get("v")).hasSize(100);
+    }
+
+    @Test
+    void keepsRemovedEntriesRemovedAfterCompaction() {
+        final var store = new SegmentStore(directory, SEGMENT_SIZE);
+        // The first segment holds "a" and "keep", and stays around after compaction.
+        store.put("a", fields(100), 0);
+        store.put("keep", fields(100), 0);
+        // The second segment holds "b", then tombstones for "a" and "b".
+        store.put("b", fields(100), 0);
+        store.remove("a");
+        store.remove("b");
+        // Another segment becomes the active segment, so that the second segment can be removed.
+        store.put("c", fields(250), 0);
+        store.compact(0.5);
+        store.flush();
+
+        final var reloaded = new SegmentStore(directory, SEGMENT_SIZE);
+        assertThat(reloaded.get("a")).isNull();
+        assertThat(reloaded.get("b")).isNull();
+        assertThat(reloaded.get("keep")).isNotNull();
+        assertThat(reloaded.get("c")).isNotNull();
+    }
+
+    private static Map<String, byte[]> fields(int size) {
+        return Map.of("v", "x".repeat(size).getBytes(StandardCharsets.UTF_8));
+    }
+}
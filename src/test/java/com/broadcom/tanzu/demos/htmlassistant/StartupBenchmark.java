@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2025 Broadcom, Inc. or its affiliates
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.broadcom.tanzu.demos.htmlassistant;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+// Startup benchmark: the app is started several times, measuring the time until the app is live,
+// then the latency of the first page and of the first generated content (which loads most of the classes).
+// Usage: StartupBenchmark jar=target/html-assistant-0.0.1-SNAPSHOT.jar [java-options=-Xopt1,-Xopt2] [profiles=stub]
+//                         [runs=5] [url=http://localhost:8080]
+// The app is run from the directory of the jar file: paths in Java options are relative to this directory.
+// Run this benchmark with Redis and the OpenAI stub server (see OpenAiStubServer) up and running.
+public class StartupBenchmark {
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+    private static final Duration POLL_INTERVAL = Duration.ofMillis(10);
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NEVER)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final String url;
+
+    StartupBenchmark(String url) {
+        this.url = url;
+    }
+
+    private record Sample(long startupNanos, long firstPageNanos, long firstContentNanos) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        final var params = new HashMap<String, String>();
+        for (final var arg : args) {
+            final var i = arg.indexOf('=');
+            params.put(arg.substring(0, i), arg.substring(i + 1));
+        }
+        final var jar = Path.of(params.getOrDefault("jar", "target/html-assistant-0.0.1-SNAPSHOT.jar")).toAbsolutePath();
+        final var javaOptions = params.getOrDefault("java-options", "").strip();
+        final var runs = Integer.parseInt(params.getOrDefault("runs", "5"));
+
+        final var command = new ArrayList<String>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (!javaOptions.isEmpty()) {
+            command.addAll(Arrays.asList(javaOptions.split(",")));
+        }
+        command.addAll(List.of("-jar", jar.getFileName().toString(),
+                "--spring.profiles.active=" + params.getOrDefault("profiles", "stub"),
+                "--spring.docker.compose.enabled=false"));
+
+        final var benchmark = new StartupBenchmark(params.getOrDefault("url", "http://localhost:8080"));
+        benchmark.run(command, jar.getParent(), runs);
+    }
+
+    private void run(List<String> command, Path directory, int runs) throws Exception {
+        System.out.printf("Starting app %d times: %s%n", runs, String.join(" ", command));
+        final var samples = new ArrayList<Sample>(runs);
+        final var log = directory.resolve("startup-benchmark.log").toFile();
+        for (var i = 0; i < runs; ++i) {
+            final var start = System.nanoTime();
+            final var process = new ProcessBuilder(command).directory(directory.toFile())
+                    .redirectErrorStream(true).redirectOutput(log).start();
+            try {
+                waitUntilLive(process);
+                final var live = System.nanoTime();
+                send(HttpRequest.newBuilder(URI.create(url + "/assistant")).build());
+                final var firstPage = System.nanoTime();
+                generateContent();
+                final var firstContent = System.nanoTime();
+
+                final var sample = new Sample(live - start, firstPage - live, firstContent - firstPage);
+                System.out.printf("Run %d: startup %7.1f ms, first page %7.1f ms, first content %7.1f ms%n", i + 1,
+                        sample.startupNanos() / 1e6, sample.firstPageNanos() / 1e6, sample.firstContentNanos() / 1e6);
+                samples.add(sample);
+            } finally {
+                process.destroy();
+                process.waitFor();
+            }
+        }
+
+        System.out.println();
+        printStats("Startup (until live)", samples.stream().mapToLong(Sample::startupNanos).sorted().toArray());
+        printStats("First page", samples.stream().mapToLong(Sample::firstPageNanos).sorted().toArray());
+        printStats("First content", samples.stream().mapToLong(Sample::firstContentNanos).sorted().toArray());
+        System.out.printf("App output of the last run: %s%n", log);
+    }
+
+    private void waitUntilLive(Process process) throws IOException, InterruptedException {
+        final var deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        final var req = HttpRequest.newBuilder(URI.create(url + "/livez")).build();
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IOException("App exited with status " + process.exitValue());
+            }
+            try {
+                if (http.send(req, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (ConnectException ignored) {
+                // The app is not listening yet.
+            }
+            Thread.sleep(POLL_INTERVAL);
+        }
+        throw new IOException("App not live after " + STARTUP_TIMEOUT);
+    }
+
+    private void generateContent() throws IOException, InterruptedException {
+        final var submit = send(HttpRequest.newBuilder(URI.create(url + "/assistant"))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString("prompt=Generate+a+website+for+a+bakery"))
+                .build());
+        final var location = submit.headers().firstValue("Location")
+                .orElseThrow(() -> new IOException("Unexpected response to prompt submission: " + submit.statusCode()));
+        final var contentId = location.substring(location.lastIndexOf('/') + 1);
+        final var content = send(HttpRequest.newBuilder(URI.create(url + "/content/site-" + contentId)).build());
+        if (content.statusCode() != 200) {
+            throw new IOException("Unexpected response to content request: " + content.statusCode());
+        }
+    }
+
+    private HttpResponse<Void> send(HttpRequest req) throws IOException, InterruptedException {
+        return http.send(req, HttpResponse.BodyHandlers.discarding());
+    }
+
+    private static void printStats(String name, long[] sortedNanos) {
+        if (sortedNanos.length == 0) {
+            return;
+        }
+        System.out.printf("%-22s min: %7.1f ms, median: %7.1f ms, max: %7.1f ms%n", name,
+                sortedNanos[0] / 1e6, sortedNanos[sortedNanos.length / 2] / 1e6, sortedNanos[sortedNanos.length - 1] / 1e6);
+    }
+}